@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import jakarta.xml.bind.JAXBException;
+import javax.xml.datatype.DatatypeConfigurationException;
+
+import org.apache.commons.csv.CSVParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solutions.a2.iso20022.camt053.v001_02.AccountStatement2;
+
+/**
+ * BankToCustomerStatement end to end and by phase: CSV load, balances (statement header),
+ * entries (processTransactions) and marshal. CSV load is measured for plain, gzip and zip
+ * statement read by StatementInput. Reverse conversion of the same statement by
+ * RevolutStatement is measured by reverse benchmark. Run with
+ * java -jar target/benchmarks.jar BankToCustomerStatementBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class BankToCustomerStatementBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int rows;
+
+	private Path directory;
+	private Path statementFile;
+	private Path gzipFile;
+	private Path zipFile;
+	private Path outputFile;
+	private Path camtFile;
+	private Path reverseFile;
+	private StatementColumns.Layout layout;
+	private BankToCustomerStatement statement;
+	private AccountStatement2 accStmt;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, DatatypeConfigurationException, ParseException {
+		directory = Files.createTempDirectory("camt053-bench");
+		statementFile = directory.resolve("statement-" + rows + ".csv");
+		outputFile = directory.resolve("statement-" + rows + ".xml");
+		new SyntheticData(SyntheticData.DEFAULT_SEED).statement(statementFile, PropertiesManager.TZ,
+				rows, SyntheticData.DEFAULT_ROWS_PER_DAY, LocalDate.of(2022, 5, 31));
+		gzipFile = directory.resolve("statement-" + rows + ".csv.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+			Files.copy(statementFile, out);
+		}
+		zipFile = directory.resolve("statement-" + rows + ".zip");
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+			out.putNextEntry(new ZipEntry(statementFile.getFileName().toString()));
+			Files.copy(statementFile, out);
+			out.closeEntry();
+		}
+		try (Reader in = StatementInput.open(statementFile.toString());
+				CSVParser parser = new CSVParser(in, BankToCustomerStatement.csvFormat())) {
+			layout = new StatementColumns.Layout(parser.getHeaderMap(), PropertiesManager.TZ);
+		}
+		statement = new BankToCustomerStatement(
+				PropertiesManager.TZ, PropertiesManager.CURRENCY_CODE, statementFile.toString());
+		accStmt = header();
+		statement.statementEntries(accStmt);
+		camtFile = directory.resolve("camt053-" + rows + ".xml");
+		reverseFile = directory.resolve("revolut-" + rows + ".csv");
+		new BankToCustomerStatement(
+				PropertiesManager.TZ, PropertiesManager.CURRENCY_CODE, statementFile.toString()).write(
+				PropertiesManager.PARTY_COUNTRY, "Glavni Trg 4 Maribor 2000", "",
+				"A2 Rešitve digitalne storitve d.o.o.", PropertiesManager.BRANCH_COUNTRY,
+				PropertiesManager.BIC, PropertiesManager.BRANCH, "LT601010012345678901",
+				camtFile.toString());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(outputFile);
+		Files.deleteIfExists(camtFile);
+		Files.deleteIfExists(reverseFile);
+		Files.deleteIfExists(statementFile);
+		Files.deleteIfExists(gzipFile);
+		Files.deleteIfExists(zipFile);
+		Files.deleteIfExists(directory);
+	}
+
+	private AccountStatement2 header() throws DatatypeConfigurationException, ParseException {
+		return statement.statementHeader(
+				PropertiesManager.PARTY_COUNTRY, "Glavni Trg 4 Maribor 2000", "",
+				"A2 Rešitve digitalne storitve d.o.o.", PropertiesManager.BRANCH_COUNTRY,
+				PropertiesManager.BIC, PropertiesManager.BRANCH, "LT601010012345678901");
+	}
+
+	/**
+	 * Conversion mode, used only by end to end benchmark
+	 */
+	@State(Scope.Benchmark)
+	public static class Conversion {
+		@Param({"false", "true"})
+		public boolean streaming;
+	}
+
+	@Benchmark
+	public void endToEnd(final Conversion conversion) throws IOException {
+		final BankToCustomerStatement converter = new BankToCustomerStatement(
+				PropertiesManager.TZ, PropertiesManager.CURRENCY_CODE, statementFile.toString(), conversion.streaming);
+		converter.write(
+				PropertiesManager.PARTY_COUNTRY, "Glavni Trg 4 Maribor 2000", "",
+				"A2 Rešitve digitalne storitve d.o.o.", PropertiesManager.BRANCH_COUNTRY,
+				PropertiesManager.BIC, PropertiesManager.BRANCH, "LT601010012345678901",
+				outputFile.toString());
+	}
+
+	/**
+	 * Compression of statement, used only by load benchmark
+	 */
+	@State(Scope.Benchmark)
+	public static class Input {
+		@Param({"csv", "gzip", "zip"})
+		public String compression;
+	}
+
+	@Benchmark
+	public StatementColumns load(final Input input) throws IOException, ParseException {
+		final Path file;
+		if ("gzip".equals(input.compression)) {
+			file = gzipFile;
+		} else if ("zip".equals(input.compression)) {
+			file = zipFile;
+		} else {
+			file = statementFile;
+		}
+		try (Reader in = StatementInput.open(file.toString());
+				CSVParser parser = new CSVParser(in, BankToCustomerStatement.csvFormat())) {
+			return StatementColumns.load(parser, layout);
+		}
+	}
+
+	@Benchmark
+	public AccountStatement2 balances() throws DatatypeConfigurationException, ParseException {
+		return header();
+	}
+
+	@Benchmark
+	public AccountStatement2 entries() throws DatatypeConfigurationException, ParseException {
+		final AccountStatement2 entries = header();
+		statement.statementEntries(entries);
+		return entries;
+	}
+
+	@Benchmark
+	public void marshal() throws IOException {
+		statement.marshal(Collections.singletonList(accStmt), outputFile.toString());
+	}
+
+	@Benchmark
+	public void reverse() throws IOException, JAXBException {
+		new RevolutStatement(PropertiesManager.TZ, camtFile.toString()).write(reverseFile.toString());
+	}
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CreditTransferInitiation unmarshal and unmarshal with write to Revolut bulk payment csv.
+ * Run with java -jar target/benchmarks.jar CreditTransferInitiationBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class CreditTransferInitiationBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int payments;
+
+	/** Number of CdtTrfTxInf in every PmtInf, total number of transfers is always payments */
+	@Param({"1", "1000"})
+	public int transactions;
+
+	private Path directory;
+	private Path paymentsFile;
+	private Path outputFile;
+	private RecipientRegistry personalIbans;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("pain001-bench");
+		paymentsFile = directory.resolve("payments-" + payments + "-" + transactions + ".xml");
+		outputFile = directory.resolve("payments-" + payments + "-" + transactions + ".csv");
+		new SyntheticData(SyntheticData.DEFAULT_SEED).payments(paymentsFile, payments / transactions, transactions);
+		personalIbans = RecipientRegistry.of(Arrays.asList(
+				SyntheticData.iban("SI", "000000000000001"), SyntheticData.iban("SI", "000000000000003")));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(outputFile);
+		Files.deleteIfExists(paymentsFile);
+		Files.deleteIfExists(directory);
+	}
+
+	/**
+	 * Conversion mode, used only by end to end benchmark
+	 */
+	@State(Scope.Benchmark)
+	public static class Conversion {
+		@Param({"false", "true"})
+		public boolean streaming;
+	}
+
+	@Benchmark
+	public CreditTransferInitiation unmarshal() throws IOException, JAXBException {
+		return new CreditTransferInitiation(paymentsFile.toString(), false);
+	}
+
+	@Benchmark
+	public void endToEnd(final Conversion conversion) throws IOException, JAXBException {
+		final CreditTransferInitiation cti = new CreditTransferInitiation(paymentsFile.toString(), conversion.streaming);
+		cti.write(outputFile.toString(), personalIbans);
+	}
+
+}
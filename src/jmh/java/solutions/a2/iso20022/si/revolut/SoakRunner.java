@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.PropertyConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * End to end soak test: generates large Revolut statement and pain.001.001.03 file with
+ * SyntheticData and converts every file in child JVM limited by -Xmx to heap ceiling.
+ * Soak fails when conversion does not complete within heap ceiling or when it is slower
+ * than required minimum rows per second. Run by profile soak (mvn -Psoak verify), which fails
+ * build on non-zero exit code, or with
+ * java -cp target/benchmarks.jar solutions.a2.iso20022.si.revolut.SoakRunner -r 20000000 -p 5000000
+ */
+public class SoakRunner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SoakRunner.class);
+
+	private static final String STATEMENT = "statement";
+	private static final String PAYMENTS = "payments";
+	/** Minimum rates are about quarter of single core rate, so only real regression fails soak */
+	static final long DEFAULT_MIN_STATEMENT_RATE = 20_000;
+	static final long DEFAULT_MIN_PAYMENTS_RATE = 10_000;
+
+	private final Path directory;
+	private final String heapCeiling;
+	private final boolean streaming;
+	private final List<Path> created = new ArrayList<>();
+
+	SoakRunner(final Path directory, final String heapCeiling, final boolean streaming) {
+		this.directory = directory;
+		this.heapCeiling = heapCeiling;
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Converts file in child JVM
+	 *
+	 * @return rows per second or -1 when conversion failed
+	 */
+	private long convert(final String type, final Path source, final long rows)
+			throws IOException, InterruptedException {
+		final Path elapsed = directory.resolve(type + ".millis");
+		Files.deleteIfExists(elapsed);
+		created.add(source);
+		created.add(elapsed);
+		created.add(Paths.get(SepaUtils.getOutputName(source.toString(), PAYMENTS.equals(type))));
+		final List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-Xmx" + heapCeiling);
+		command.add("-XX:+ExitOnOutOfMemoryError");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Worker.class.getName());
+		Collections.addAll(command, type, source.toString(), Boolean.toString(streaming), elapsed.toString());
+		LOGGER.info("Converting {} ({} bytes, {} rows) with -Xmx{}, streaming={}.",
+				source, Files.size(source), rows, heapCeiling, streaming);
+		final Process process = new ProcessBuilder(command)
+				.directory(directory.toFile())
+				.inheritIO()
+				.start();
+		final int exitCode = process.waitFor();
+		if (exitCode != 0) {
+			LOGGER.error("Conversion of {} failed, exit code {}.", source, exitCode);
+			return -1;
+		}
+		final long millis = Math.max(1, Long.parseLong(Files.readString(elapsed).trim()));
+		final long rowsPerSecond = rows * 1000 / millis;
+		LOGGER.info("{} converted in {} ms, {} rows/s.", source, millis, rowsPerSecond);
+		return rowsPerSecond;
+	}
+
+	/**
+	 * Deletes generated and converted files
+	 */
+	private void cleanup() throws IOException {
+		for (Path file : created) {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Conversion in child JVM, writes conversion time in milliseconds to file passed as last argument
+	 */
+	public static class Worker {
+
+		public static void main(String[] argv) throws IOException, JAXBException {
+			BasicConfigurator.configure();
+			org.apache.log4j.Logger.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+			final String type = argv[0];
+			final Path source = Paths.get(argv[1]);
+			final boolean streaming = Boolean.parseBoolean(argv[2]);
+			final long started = System.nanoTime();
+			if (STATEMENT.equals(type)) {
+				final BankToCustomerStatement statement = new BankToCustomerStatement(
+						PropertiesManager.TZ, PropertiesManager.CURRENCY_CODE, source.toString(), streaming);
+				statement.write(
+						PropertiesManager.PARTY_COUNTRY, "Glavni Trg 4 Maribor 2000", "",
+						"A2 Rešitve digitalne storitve d.o.o.", PropertiesManager.BRANCH_COUNTRY,
+						PropertiesManager.BIC, PropertiesManager.BRANCH, "LT601010012345678901",
+						SepaUtils.getOutputName(source.toString(), false));
+			} else {
+				final CreditTransferInitiation cti = new CreditTransferInitiation(source.toString(), streaming);
+				cti.write(SepaUtils.getOutputName(source.toString(), true), RecipientRegistry.EMPTY);
+			}
+			Files.writeString(Paths.get(argv[3]), Long.toString((System.nanoTime() - started) / 1_000_000));
+		}
+
+	}
+
+	public static void main(String[] argv) {
+		// Check for valid log4j configuration
+		final String log4jConfig = System.getProperty("a2.log4j.configuration");
+		if (log4jConfig == null || "".equals(log4jConfig)) {
+			BasicConfigurator.configure();
+			LOGGER.warn("JVM argument -Da2.log4j.configuration not set!");
+		} else {
+			// Check that log4j configuration file exist
+			Path path = Paths.get(log4jConfig);
+			if (!Files.exists(path) || Files.isDirectory(path)) {
+				BasicConfigurator.configure();
+				LOGGER.error("JVM argument -Da2.log4j.configuration points to unknown file {}.", log4jConfig);
+			} else {
+				// Initialize log4j
+				PropertyConfigurator.configure(log4jConfig);
+			}
+		}
+
+		final Options options = new Options();
+
+		final Option optionDirectory = new Option("d", "directory", true,
+				"Working directory for generated and converted files, default - new temporary directory.");
+		optionDirectory.setRequired(false);
+		options.addOption(optionDirectory);
+
+		final Option optionRows = new Option("r", "statement-rows", true,
+				"Number of Revolut statement rows, 0 to skip statement conversion, default - 10000000 (about 1.5 GB).");
+		optionRows.setRequired(false);
+		options.addOption(optionRows);
+
+		final Option optionPayments = new Option("p", "payments", true,
+				"Number of PmtInf elements in pain.001.001.03 file, 0 to skip, default - 2000000 (about 1.7 GB).");
+		optionPayments.setRequired(false);
+		options.addOption(optionPayments);
+
+		final Option optionHeap = new Option("m", "heap-ceiling", true,
+				"Maximum heap size of conversion JVM, default - 256m.");
+		optionHeap.setRequired(false);
+		options.addOption(optionHeap);
+
+		final Option optionStatementRate = new Option("R", "min-statement-rows", true,
+				"Minimum Revolut statement rows converted per second, default - " + DEFAULT_MIN_STATEMENT_RATE + ".");
+		optionStatementRate.setRequired(false);
+		options.addOption(optionStatementRate);
+
+		final Option optionPaymentsRate = new Option("P", "min-payments", true,
+				"Minimum payments converted per second, default - " + DEFAULT_MIN_PAYMENTS_RATE + ".");
+		optionPaymentsRate.setRequired(false);
+		options.addOption(optionPaymentsRate);
+
+		final Option optionInMemory = new Option("M", "in-memory", false,
+				"Convert files in memory instead of streaming.");
+		optionInMemory.setRequired(false);
+		options.addOption(optionInMemory);
+
+		final Option optionKeep = new Option("k", "keep", false,
+				"Keep generated and converted files.");
+		optionKeep.setRequired(false);
+		options.addOption(optionKeep);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cmd = null;
+		long rows = 10_000_000;
+		int payments = 2_000_000;
+		long minStatementRate = DEFAULT_MIN_STATEMENT_RATE;
+		long minPaymentsRate = DEFAULT_MIN_PAYMENTS_RATE;
+		try {
+			cmd = parser.parse(options, argv);
+			if (cmd.hasOption("r")) {
+				rows = Long.parseLong(cmd.getOptionValue("r"));
+			}
+			if (cmd.hasOption("p")) {
+				payments = Integer.parseInt(cmd.getOptionValue("p"));
+			}
+			if (cmd.hasOption("R")) {
+				minStatementRate = Long.parseLong(cmd.getOptionValue("R"));
+			}
+			if (cmd.hasOption("P")) {
+				minPaymentsRate = Long.parseLong(cmd.getOptionValue("P"));
+			}
+			if (minStatementRate < 1 || minPaymentsRate < 1) {
+				throw new org.apache.commons.cli.ParseException("Minimum conversion rates must be positive!");
+			}
+		} catch (org.apache.commons.cli.ParseException | NumberFormatException pe) {
+			LOGGER.error(pe.getMessage());
+			formatter.printHelp(SoakRunner.class.getCanonicalName(), options);
+			System.exit(1);
+		}
+
+		boolean failed = false;
+		Path directory = null;
+		try {
+			if (cmd.hasOption("d")) {
+				directory = Paths.get(cmd.getOptionValue("d"));
+				Files.createDirectories(directory);
+			} else {
+				directory = Files.createTempDirectory("si-sepa-soak");
+			}
+			final SoakRunner soak = new SoakRunner(directory,
+					cmd.getOptionValue("m", "256m"), !cmd.hasOption("M"));
+			final SyntheticData generator = new SyntheticData(SyntheticData.DEFAULT_SEED);
+			if (rows > 0) {
+				final Path statement = directory.resolve("soak-statement.csv");
+				generator.statement(statement, PropertiesManager.TZ,
+						rows, SyntheticData.DEFAULT_ROWS_PER_DAY, LocalDate.now());
+				failed |= !check(STATEMENT, soak.convert(STATEMENT, statement, rows), minStatementRate);
+			}
+			if (payments > 0) {
+				final Path batch = directory.resolve("soak-payments.xml");
+				generator.payments(batch, payments, 1);
+				failed |= !check(PAYMENTS, soak.convert(PAYMENTS, batch, payments), minPaymentsRate);
+			}
+			if (!cmd.hasOption("k")) {
+				soak.cleanup();
+				if (!cmd.hasOption("d")) {
+					// Temporary directory may also contain log of conversion JVM
+					for (File file : directory.toFile().listFiles()) {
+						Files.delete(file.toPath());
+					}
+					Files.delete(directory);
+				}
+			}
+		} catch (IOException | InterruptedException e) {
+			LOGGER.error(e.getMessage());
+			final StringWriter sw = new StringWriter();
+			final PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			LOGGER.error(sw.toString());
+			System.exit(1);
+		}
+		if (failed) {
+			System.out.println("Soak test FAILED, see log for details.");
+			System.exit(2);
+		} else {
+			System.out.println("Soak test passed.");
+		}
+	}
+
+	private static boolean check(final String type, final long rowsPerSecond, final long minRowsPerSecond) {
+		if (rowsPerSecond < 0) {
+			return false;
+		} else if (rowsPerSecond < minRowsPerSecond) {
+			LOGGER.error("{} conversion rate {} rows/s is below required {} rows/s.",
+					type, rowsPerSecond, minRowsPerSecond);
+			return false;
+		} else {
+			return true;
+		}
+	}
+
+}
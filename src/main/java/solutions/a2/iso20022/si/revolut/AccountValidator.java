@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+/**
+ * IBAN (ISO 13616, electronic format) and BIC (ISO 9362) validation without allocation.
+ * IBAN length is checked against length of country from IBAN registry, check digits are
+ * verified with mod-97 calculated char by char over rearranged IBAN (BBAN, country code,
+ * check digits), remainder is reduced only when it may overflow long, so one IBAN costs a few
+ * divisions. BIC format is the format of BICIdentifier in pain.001.001.03 and camt.053.001.02.
+ * Methods are static and thread-safe, results are constants of {@link Result}.
+ */
+public final class AccountValidator {
+
+	/**
+	 * Result of validation, VALID or reason of rejection
+	 */
+	public enum Result {
+		VALID("valid"),
+		BLANK("value is missing"),
+		COUNTRY("unknown country code"),
+		LENGTH("wrong length for country"),
+		CHARACTER("invalid character"),
+		CHECK_DIGITS("wrong check digits"),
+		FORMAT("wrong format");
+
+		private final String description;
+
+		Result(final String description) {
+			this.description = description;
+		}
+
+		public boolean valid() {
+			return this == VALID;
+		}
+
+		public String description() {
+			return description;
+		}
+	}
+
+	/** IBAN length of countries from SWIFT IBAN registry */
+	private static final String IBAN_LENGTHS =
+			"AD24 AE23 AL28 AT20 AZ28 BA20 BE16 BG22 BH22 BI27 BR29 BY28 CH21 CR22 CY28 CZ24 " +
+			"DE22 DJ27 DK18 DO28 EE20 EG29 ES24 FI18 FK18 FO18 FR27 GB22 GE22 GI23 GL18 GR27 " +
+			"GT28 HR21 HU28 IE22 IL23 IQ23 IS26 IT27 JO30 KW30 KZ20 LB28 LC32 LI21 LT20 LU20 " +
+			"LV21 LY25 MC27 MD24 ME22 MK19 MN20 MR27 MT31 MU30 NI28 NL18 NO15 OM23 PK24 PL28 " +
+			"PS29 PT25 QA29 RO24 RS22 RU33 SA24 SC31 SD18 SE24 SI19 SK24 SM27 SO23 ST25 SV28 " +
+			"TL23 TN24 TR26 UA29 VA22 VG24 XK20 YE30";
+	/** IBAN length by (first letter - 'A') * 26 + (second letter - 'A'), 0 - not IBAN country */
+	private static final byte[] LENGTHS = new byte[26 * 26];
+	static {
+		for (String country : IBAN_LENGTHS.split(" ")) {
+			LENGTHS[(country.charAt(0) - 'A') * 26 + country.charAt(1) - 'A'] =
+					Byte.parseByte(country.substring(2));
+		}
+	}
+
+	private static final int MAX_IBAN_LENGTH = 34;
+	/** Remainder is reduced when next step may overflow: 10^15 * 100 + 35 < Long.MAX_VALUE */
+	private static final long REDUCE_LIMIT = 1_000_000_000_000_000L;
+
+	private AccountValidator() {}
+
+	/**
+	 *
+	 * @param iban - IBAN in electronic format, without spaces
+	 * @return VALID or reason why IBAN is not valid
+	 */
+	public static Result iban(final CharSequence iban) {
+		if (iban == null || iban.length() == 0) {
+			return Result.BLANK;
+		}
+		final int length = iban.length();
+		if (length < 4 || length > MAX_IBAN_LENGTH) {
+			return Result.LENGTH;
+		}
+		final char c0 = iban.charAt(0);
+		final char c1 = iban.charAt(1);
+		if (c0 < 'A' || c0 > 'Z' || c1 < 'A' || c1 > 'Z') {
+			return Result.COUNTRY;
+		}
+		final int expected = LENGTHS[(c0 - 'A') * 26 + c1 - 'A'];
+		if (expected == 0) {
+			return Result.COUNTRY;
+		}
+		if (length != expected) {
+			return Result.LENGTH;
+		}
+		final char c2 = iban.charAt(2);
+		final char c3 = iban.charAt(3);
+		if (c2 < '0' || c2 > '9' || c3 < '0' || c3 > '9') {
+			return Result.CHARACTER;
+		}
+		long remainder = 0;
+		for (int i = 4; i < length; i++) {
+			final int value = value(iban.charAt(i));
+			if (value < 0) {
+				return Result.CHARACTER;
+			}
+			remainder = step(remainder, value);
+		}
+		remainder = step(step(remainder, c0 - 'A' + 10), c1 - 'A' + 10);
+		remainder = step(step(remainder, c2 - '0'), c3 - '0');
+		return remainder % 97 == 1 ? Result.VALID : Result.CHECK_DIGITS;
+	}
+
+	public static boolean validIban(final CharSequence iban) {
+		return iban(iban) == Result.VALID;
+	}
+
+	/**
+	 * Validates ibans[from] to ibans[to - 1]
+	 *
+	 * @param ibans   - IBAN's in electronic format
+	 * @param from    - first index, inclusive
+	 * @param to      - last index, exclusive
+	 * @param results - result of ibans[i] is stored in results[i]
+	 * @return number of IBAN's which are not valid
+	 */
+	public static int ibans(final CharSequence[] ibans, final int from, final int to, final Result[] results) {
+		int invalid = 0;
+		for (int i = from; i < to; i++) {
+			final Result result = iban(ibans[i]);
+			results[i] = result;
+			if (result != Result.VALID) {
+				invalid++;
+			}
+		}
+		return invalid;
+	}
+
+	/**
+	 * Calculates check digits of IBAN, for example checkDigits("SI", "191000000123438") = 56
+	 *
+	 * @param country - ISO 3166 country code
+	 * @param bban    - basic bank account number, digits and upper-case letters
+	 * @return check digits, 2 to 98
+	 */
+	public static int checkDigits(final CharSequence country, final CharSequence bban) {
+		long remainder = 0;
+		for (int i = 0; i < bban.length(); i++) {
+			final int value = value(bban.charAt(i));
+			if (value < 0) {
+				throw new IllegalArgumentException("Invalid character in BBAN " + bban + "!");
+			}
+			remainder = step(remainder, value);
+		}
+		remainder = step(step(remainder, country.charAt(0) - 'A' + 10), country.charAt(1) - 'A' + 10);
+		remainder = step(step(remainder, 0), 0);
+		return 98 - (int) (remainder % 97);
+	}
+
+	/**
+	 *
+	 * @param bic - BIC with 8 or 11 characters
+	 * @return VALID or reason why BIC is not valid
+	 */
+	public static Result bic(final CharSequence bic) {
+		if (bic == null || bic.length() == 0) {
+			return Result.BLANK;
+		}
+		final int length = bic.length();
+		if (length != 8 && length != 11) {
+			return Result.LENGTH;
+		}
+		// Institution and country code
+		for (int i = 0; i < 6; i++) {
+			final char c = bic.charAt(i);
+			if (c < 'A' || c > 'Z') {
+				return Result.FORMAT;
+			}
+		}
+		// Location code, second character 0 is test BIC, O is not used
+		final char l0 = bic.charAt(6);
+		final char l1 = bic.charAt(7);
+		if (!((l0 >= 'A' && l0 <= 'Z') || (l0 >= '2' && l0 <= '9'))
+				|| !((l1 >= 'A' && l1 <= 'Z' && l1 != 'O') || (l1 >= '0' && l1 <= '9'))) {
+			return Result.FORMAT;
+		}
+		// Branch code
+		for (int i = 8; i < length; i++) {
+			final char c = bic.charAt(i);
+			if (!((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+				return Result.FORMAT;
+			}
+		}
+		return Result.VALID;
+	}
+
+	public static boolean validBic(final CharSequence bic) {
+		return bic(bic) == Result.VALID;
+	}
+
+	/**
+	 * @return 0-9 for digits, 10-35 for letters, -1 for other characters
+	 */
+	private static int value(final char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		} else if (c >= 'A' && c <= 'Z') {
+			return c - 'A' + 10;
+		} else if (c >= 'a' && c <= 'z') {
+			return c - 'a' + 10;
+		} else {
+			return -1;
+		}
+	}
+
+	/**
+	 * Appends decimal digits of value to remainder
+	 */
+	private static long step(long remainder, final int value) {
+		if (remainder >= REDUCE_LIMIT) {
+			remainder %= 97;
+		}
+		return value < 10 ? remainder * 10 + value : remainder * 100 + value;
+	}
+
+}
@@ -13,10 +13,7 @@
 
 package solutions.a2.iso20022.si.revolut;
 
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringWriter;
@@ -24,24 +21,41 @@ import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.text.ParseException;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import jakarta.xml.bind.JAXBContext;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.MarshalException;
 import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.ValidationException;
 import javax.xml.datatype.DatatypeConfigurationException;
-import javax.xml.datatype.DatatypeFactory;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -86,6 +100,7 @@ import solutions.a2.iso20022.camt053.v001_02.RemittanceInformation5;
 import solutions.a2.iso20022.camt053.v001_02.ReportEntry2;
 import solutions.a2.iso20022.camt053.v001_02.TotalTransactions2;
 import solutions.a2.iso20022.camt053.v001_02.TransactionReferences2;
+import solutions.a2.iso20022.si.revolut.ConversionMetrics.Phase;
 
 
 public class BankToCustomerStatement {
@@ -94,78 +109,455 @@ public class BankToCustomerStatement {
 
 	private static final int MAX_35_TEXT = 35;
 	private static final int MAX_140_TEXT = 140;
+	private static final String CAMT053_NS = "urn:iso:std:iso:20022:tech:xsd:camt.053.001.02";
+
+	/** Default minimal number of rows in chunk processed by one ForkJoinPool task */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+	// Dedicated pools for parallelism other than common pool parallelism, shared between statements
+	private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
 
 	private final ObjectFactory factory;
 	private final String currencyCode;
 	private final Instant now;
 	private final GregorianCalendar calendar;
-	private final DecimalFormat decimalFormat;
 	private final ZoneId localZoneId;
-	private final List<CSVRecord> rows;
-	private final ZonedDateTime startDate;
-	private final ZonedDateTime endDate;
-	private final String fieldStarted;
-	private final String fieldCompleted;
+	private final XmlDateCache dates;
+	private final String fileName;
+	private final boolean streaming;
+	private final StatementColumns.Layout layout;
+	private final StatementColumns columns;
+	private final StatementPeriod statement;
+	private final String newestId;
+	private final StatementCheckpoint.Entry since;
+	private final TransactionIndex known;
+	private long sequence = 0;
+	private int parallelism = ForkJoinPool.getCommonPoolParallelism();
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private OutputSink sink = OutputSink.DEFAULT;
+	private boolean validate = false;
+	private final ConversionMetrics metrics = ConversionMetrics.statement();
+
+	/**
+	 * Output of statement which covers more than one month
+	 */
+	public enum Split {
+		/** Single Stmt for whole Revolut statement */
+		NONE,
+		/** One Stmt per month in single file */
+		STATEMENTS,
+		/** One file with single Stmt per month */
+		FILES
+	}
 
 	BankToCustomerStatement(
 			final String timeZoneName,
 			final String currencyCode,
 			final String fileName) throws IOException {
+		this(timeZoneName, currencyCode, fileName, false);
+	}
+
+	/**
+	 * 
+	 * @param timeZoneName - time zone of Revolut statement dates
+	 * @param currencyCode - statement currency
+	 * @param fileName     - Revolut statement in csv format
+	 * @param streaming    - when true rows are not kept in memory, only totals and balances
+	 *                       are collected by pre-pass and entries are marshalled one by one
+	 *                       while statement is re-read in write()
+	 * @throws IOException
+	 */
+	BankToCustomerStatement(
+			final String timeZoneName,
+			final String currencyCode,
+			final String fileName,
+			final boolean streaming) throws IOException {
+		this(timeZoneName, currencyCode, fileName, streaming, null);
+	}
+
+	/**
+	 * Incremental conversion: only rows newer than row with ID of checkpoint are read, opening
+	 * balance of new rows must be equal to balance of checkpoint
+	 * 
+	 * @param since - newest row of previous conversion, null to convert whole statement
+	 * @throws IOException
+	 */
+	BankToCustomerStatement(
+			final String timeZoneName,
+			final String currencyCode,
+			final String fileName,
+			final boolean streaming,
+			final StatementCheckpoint.Entry since) throws IOException {
+		this(timeZoneName, currencyCode, fileName, streaming, since, null);
+	}
+
+	/**
+	 * Conversion with deduplication: rows with IDs in index are skipped, IDs of converted rows
+	 * are added to index after write()
+	 * 
+	 * @param known - index of rows converted before, null to convert all rows
+	 * @throws IOException
+	 */
+	BankToCustomerStatement(
+			final String timeZoneName,
+			final String currencyCode,
+			final String fileName,
+			final boolean streaming,
+			final StatementCheckpoint.Entry since,
+			final TransactionIndex known) throws IOException {
+		this.fileName = fileName;
+		this.since = since;
+		this.known = known;
+		this.streaming = streaming;
 		factory = new ObjectFactory();
 		this.currencyCode = currencyCode;
 		now = Instant.now(); 
 		calendar = new GregorianCalendar();
 		calendar.setTimeInMillis(now.toEpochMilli());
 
-		final DecimalFormatSymbols symbols = new DecimalFormatSymbols();
-		symbols.setGroupingSeparator(',');
-		symbols.setDecimalSeparator('.');
-		decimalFormat = new DecimalFormat("0.##", symbols);
-		decimalFormat.setParseBigDecimal(true);
-
 		localZoneId = ZoneId.of(timeZoneName);
+		dates = XmlDateCache.forZone(localZoneId);
+
+		final long started = System.nanoTime();
+		try (Reader in = StatementInput.open(fileName);
+				CSVParser parser = new CSVParser(in, csvFormat())) {
+			layout = new StatementColumns.Layout(parser.getHeaderMap(), timeZoneName);
+			if (streaming) {
+				columns = null;
+				final Totals totals = new Totals();
+				CSVRecord first = null;
+				CSVRecord last = null;
+				int count = 0;
+				int duplicates = 0;
+				for (CSVRecord row : parser) {
+					final String id = layout.id(row);
+					if (since != null && since.id().equals(id)) {
+						break;
+					}
+					if (known != null && known.contains(id)) {
+						duplicates++;
+						continue;
+					}
+					if (first == null) {
+						first = row;
+					}
+					last = row;
+					count++;
+					totals.add(layout.amount(row));
+				}
+				if (duplicates > 0) {
+					LOGGER.info("Skipped {} row(s) of {} converted before.", duplicates, fileName);
+				}
+				if (first == null) {
+					statement = empty(since);
+					newestId = null;
+					return;
+				}
+				newestId = layout.id(first);
+				statement = new StatementPeriod(0, count,
+						atStartOfDay(layout.started(last)),
+						atStartOfDay(layout.completed(first)),
+						openingBalance(layout.balance(last), layout.amount(last), layout.fee(last)),
+						layout.balance(first),
+						totals);
+			} else {
+				columns = StatementColumns.load(parser, layout, since == null ? null : since.id(), known);
+				if (columns.size() == 0) {
+					statement = empty(since);
+					newestId = null;
+					return;
+				}
+				newestId = columns.id(0);
+				final int last = columns.size() - 1;
+				statement = new StatementPeriod(0, columns.size(),
+						atStartOfDay(columns.started(last)),
+						atStartOfDay(columns.completed(0)),
+						openingBalance(columns.balance(last), columns.amount(last), columns.fee(last)),
+						columns.balance(0),
+						new Totals());
+			}
+			if (since != null && statement.openingBal != since.balance()) {
+				throw new IOException("Opening balance " + statement.openingBal + " of new rows in " + fileName +
+						" does not continue checkpoint balance " + since.balance() + " after row " + since.id() +
+						" completed " + since.completed() + ", rows are missing or statement belongs to other account!");
+			}
+			metrics.phase(Phase.READ, started);
+			metrics.bytesIn(ConversionMetrics.size(fileName));
+		} catch (ParseException | ArithmeticException e) {
+			metrics.rejected(1);
+			metrics.failed();
+			throw new IOException(e);
+		} catch (IOException ioe) {
+			metrics.failed();
+			throw ioe;
+		}
+	}
 
-		Reader in = new FileReader(fileName);
-		final CSVFormat format = CSVFormat.DEFAULT.builder()
-				.setHeader()
-				.setSkipHeaderRecord(true)
-				.build();
-		CSVParser parser = new CSVParser(in, format);
-		rows = parser.getRecords();
-		parser.close();
-		in.close();
-
-		if (rows.size() == 0) {
+	/**
+	 * Statement without rows is valid only in incremental mode or with deduplication
+	 */
+	private StatementPeriod empty(final StatementCheckpoint.Entry since) throws IOException {
+		if (since == null && known == null) {
 			throw new IOException("Unable to process empty statement!");
 		}
+		metrics.bytesIn(ConversionMetrics.size(fileName));
+		return null;
+	}
+
+	/**
+	 * @return true when incremental conversion found no rows newer than checkpoint or all
+	 *         rows were converted before
+	 */
+	public boolean empty() {
+		return statement == null;
+	}
+
+	/**
+	 * @return newest converted row, checkpoint for next incremental conversion
+	 */
+	public StatementCheckpoint.Entry checkpoint() {
+		if (statement == null) {
+			throw new IllegalStateException("Statement has no rows!");
+		}
+		return new StatementCheckpoint.Entry(newestId, statement.endDate.toLocalDate(), statement.closingBal, sequence);
+	}
+
+	/**
+	 * Rows [from, to) of Revolut statement reported as one AccountStatement2
+	 */
+	private static class StatementPeriod {
+		private final int from;
+		private final int to;
+		private final ZonedDateTime startDate;
+		private final ZonedDateTime endDate;
+		// Balances in minor units
+		private final long openingBal;
+		private final long closingBal;
+		private final Totals totals;
+
+		StatementPeriod(final int from, final int to,
+				final ZonedDateTime startDate, final ZonedDateTime endDate,
+				final long openingBal, final long closingBal, final Totals totals) {
+			this.from = from;
+			this.to = to;
+			this.startDate = startDate;
+			this.endDate = endDate;
+			this.openingBal = openingBal;
+			this.closingBal = closingBal;
+			this.totals = totals;
+		}
+
+		boolean multiMonth() {
+			return startDate.getMonthValue() != endDate.getMonthValue() ||
+					startDate.getYear() != endDate.getYear();
+		}
+	}
+
+	/**
+	 * Number and sum of credit and debit entries, sums are in minor units
+	 */
+	private static class Totals {
+		private int cdtCount;
+		private long cdtSum;
+		private int dbtCount;
+		private long dbtSum;
+
+		void add(final long amount) {
+			if (amount < 0) {
+				// Debit
+				dbtCount++;
+				dbtSum = Math.subtractExact(dbtSum, amount);
+			} else {
+				// Credit
+				cdtCount++;
+				cdtSum = Math.addExact(cdtSum, amount);
+			}
+		}
+
+		void clear() {
+			cdtCount = 0;
+			cdtSum = 0;
+			dbtCount = 0;
+			dbtSum = 0;
+		}
 
-		fieldStarted = "Date started (" + timeZoneName + ")";
-		fieldCompleted = "Date completed (" + timeZoneName + ")";
+		void merge(final Totals other) {
+			cdtCount += other.cdtCount;
+			cdtSum = Math.addExact(cdtSum, other.cdtSum);
+			dbtCount += other.dbtCount;
+			dbtSum = Math.addExact(dbtSum, other.dbtSum);
+		}
+	}
 
-		startDate = LocalDate
-				.parse(rows.get(rows.size() - 1).get(fieldStarted), DateTimeFormatter.ISO_DATE)
-				.atStartOfDay(localZoneId);
-		endDate = LocalDate
-				.parse(rows.get(0).get(fieldCompleted), DateTimeFormatter.ISO_DATE)
-				.atStartOfDay(localZoneId);
+	/**
+	 * Configures parallel construction of statement entries. Entries are always added to
+	 * statement in order of Revolut statement rows, output does not depend on parallelism.
+	 * 
+	 * @param parallelism - number of ForkJoinPool worker threads, 1 to build entries on calling thread
+	 * @param threshold   - statements (or months) with no more rows are built on calling thread,
+	 *                      larger are split to chunks of at most threshold rows
+	 */
+	public void parallel(final int parallelism, final int threshold) {
+		if (parallelism < 1 || threshold < 1) {
+			throw new IllegalArgumentException("Parallelism and threshold must be positive!");
+		}
+		this.parallelism = parallelism;
+		this.parallelThreshold = threshold;
+	}
 
-		if (startDate.getMonthValue() != endDate.getMonthValue() ||
-				startDate.getYear() != endDate.getYear()) {
-		//TODO
-		//TODO Month only!!!
-		//TODO
+	/**
+	 * Incremental statement: Stmt/Id and LglSeqNb are built from sequence number instead of
+	 * month, opening balance is dated with Date completed of checkpoint (day before first row
+	 * on first run) and closing balance with Date completed of newest row.
+	 *
+	 * @param sequence - number of incremental statement of account, starting with 1
+	 */
+	public void sequence(final long sequence) {
+		if (sequence < 1) {
+			throw new IllegalArgumentException("Sequence number must be positive!");
 		}
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Configures output of write(), streaming output is always compact XML
+	 */
+	public void sink(final OutputSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Validates camt.053 against XSD while it is marshalled, invalid output is not committed
+	 * and write() throws IOException with ValidationException which lists errors. Statement
+	 * IBAN and branch BIC are checked before conversion starts.
+	 */
+	public void validate(final boolean validate) {
+		this.validate = validate;
+	}
+
+	private ForkJoinPool pool() {
+		if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+			return ForkJoinPool.commonPool();
+		} else {
+			return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+		}
+	}
+
+	/**
+	 * Builds entries for rows [from, to) into entries[row - offset], splits range in halves
+	 * while it is larger than parallelThreshold. Totals of both halves are merged after join.
+	 */
+	private final class EntryTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int offset;
+		private final ReportEntry2[] entries;
+		private final Totals totals;
+
+		EntryTask(final int from, final int to, final int offset, final ReportEntry2[] entries) {
+			this.from = from;
+			this.to = to;
+			this.offset = offset;
+			this.entries = entries;
+			this.totals = new Totals();
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= parallelThreshold) {
+				try {
+					for (int row = from; row < to; row++) {
+						final long amount = columns.amount(row);
+						entries[row - offset] = transactionLine(
+								columns.started(row), columns.completed(row), amount,
+								columns.id(row), columns.reference(row), columns.description(row));
+						totals.add(amount);
+					}
+				} catch (DatatypeConfigurationException dce) {
+					throw new CompletionException(dce);
+				}
+			} else {
+				final int middle = (from + to) >>> 1;
+				final EntryTask left = new EntryTask(from, middle, offset, entries);
+				final EntryTask right = new EntryTask(middle, to, offset, entries);
+				invokeAll(left, right);
+				totals.merge(left.totals);
+				totals.merge(right.totals);
+			}
+		}
+	}
+
+	/**
+	 * Splits rows by month of "Date completed", rows of every month must be contiguous
+	 * 
+	 * @return periods for every month, oldest month first
+	 */
+	private List<StatementPeriod> monthlyPeriods() throws IOException {
+		final List<StatementPeriod> periods = new ArrayList<>();
+		final Set<YearMonth> processed = new HashSet<>();
+		int from = 0;
+		YearMonth month = YearMonth.from(LocalDate.ofEpochDay(columns.completed(0)));
+		for (int row = 1; row <= columns.size(); row++) {
+			final YearMonth rowMonth = row < columns.size() ?
+					YearMonth.from(LocalDate.ofEpochDay(columns.completed(row))) :
+					null;
+			if (!month.equals(rowMonth)) {
+				if (!processed.add(month)) {
+					throw new IOException("Unable to split statement, rows for " + month +
+							" are not ordered by \"Date completed\"!");
+				}
+				final int last = row - 1;
+				final ZonedDateTime monthStart = month.atDay(1).atStartOfDay(localZoneId);
+				periods.add(new StatementPeriod(from, row,
+						monthStart,
+						monthStart,
+						openingBalance(columns.balance(last), columns.amount(last), columns.fee(last)),
+						columns.balance(from),
+						new Totals()));
+				from = row;
+				month = rowMonth;
+			}
+		}
+		Collections.reverse(periods);
+		return periods;
+	}
+
+	private ZonedDateTime atStartOfDay(final int epochDay) {
+		return LocalDate.ofEpochDay(epochDay).atStartOfDay(localZoneId);
+	}
+
+	/**
+	 * Balance before the oldest statement row
+	 */
+	private static long openingBalance(final long balance, final long amount, final long fee) {
+		return Math.subtractExact(balance, Math.addExact(amount, fee));
+	}
+
+	static CSVFormat csvFormat() {
+		return CSVFormat.DEFAULT.builder()
+				.setHeader()
+				.setSkipHeaderRecord(true)
+				.build();
 	}
 
 	private GroupHeader42 groupHeader() throws ParseException, DatatypeConfigurationException {
+		return groupHeader("");
+	}
+
+	/**
+	 * 
+	 * @param msgIdSuffix - appended to MsgId to keep it unique when several files are created
+	 */
+	private GroupHeader42 groupHeader(final String msgIdSuffix) throws ParseException, DatatypeConfigurationException {
 		final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyyMMddhhmmssSSS").withZone(localZoneId);
 		final GroupHeader42 grpHdr = factory.createGroupHeader42();
-		grpHdr.setCreDtTm(DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar));
-		grpHdr.setMsgId("MSGSTMT" + df.format(now));
+		grpHdr.setCreDtTm(XmlDateCache.dateTime(calendar));
+		grpHdr.setMsgId("MSGSTMT" + df.format(now) + msgIdSuffix);
 		return grpHdr;
 	}
 
-	private CashBalance3 openingBalance() throws ParseException, DatatypeConfigurationException {
+	private CashBalance3 openingBalance(final StatementPeriod period) throws ParseException, DatatypeConfigurationException {
 		final CashBalance3 balance = factory.createCashBalance3();
 
 		final BalanceType12 tp = factory.createBalanceType12();
@@ -176,10 +568,7 @@ public class BankToCustomerStatement {
 
 		final ActiveOrHistoricCurrencyAndAmount amt = factory.createActiveOrHistoricCurrencyAndAmount();
 		amt.setCcy(currencyCode);
-		final BigDecimal openingBal = (BigDecimal) decimalFormat.parse(rows.get(rows.size() - 1).get("Balance"));
-		final BigDecimal amount = (BigDecimal) decimalFormat.parse(rows.get(rows.size() - 1).get("Amount"));
-		final BigDecimal fee = (BigDecimal) decimalFormat.parse(rows.get(rows.size() - 1).get("Fee"));
-		amt.setValue(openingBal.subtract(amount.add(fee)));
+		amt.setValue(MoneyParser.toBigDecimal(period.openingBal));
 		balance.setAmt(amt);
 
 		if (amt.getValue().compareTo(BigDecimal.ZERO) > 0) {
@@ -189,19 +578,22 @@ public class BankToCustomerStatement {
 		}
 
 		final DateAndDateTimeChoice dt = factory.createDateAndDateTimeChoice();
-		final ZonedDateTime openingDate = startDate
-											.minusMonths(1)
-											.with(TemporalAdjusters.lastDayOfMonth());
-		dt.setDt(
-				DatatypeFactory
-					.newInstance().
-					newXMLGregorianCalendar(GregorianCalendar.from(openingDate)));
+		final LocalDate openingDate;
+		if (sequence > 0) {
+			openingDate = since == null ? period.startDate.toLocalDate().minusDays(1) : since.completed();
+		} else {
+			openingDate = period.startDate
+							.minusMonths(1)
+							.with(TemporalAdjusters.lastDayOfMonth())
+							.toLocalDate();
+		}
+		dt.setDt(dates.date(openingDate));
 		balance.setDt(dt);
 
 		return balance;
 	}
 
-	private CashBalance3 closingBalance() throws ParseException, DatatypeConfigurationException {
+	private CashBalance3 closingBalance(final StatementPeriod period) throws ParseException, DatatypeConfigurationException {
 		final CashBalance3 balance = factory.createCashBalance3();
 
 		final BalanceType12 tp = factory.createBalanceType12();
@@ -212,7 +604,7 @@ public class BankToCustomerStatement {
 
 		final ActiveOrHistoricCurrencyAndAmount amt = factory.createActiveOrHistoricCurrencyAndAmount();
 		amt.setCcy(currencyCode);
-		amt.setValue((BigDecimal) decimalFormat.parse(rows.get(0).get("Balance")));
+		amt.setValue(MoneyParser.toBigDecimal(period.closingBal));
 		balance.setAmt(amt);
 
 		if (amt.getValue().compareTo(BigDecimal.ZERO) > 0) {
@@ -222,13 +614,11 @@ public class BankToCustomerStatement {
 		}
 
 		final DateAndDateTimeChoice dt = factory.createDateAndDateTimeChoice();
-		//TODO - or just last date???
-		final ZonedDateTime closingDate = endDate
-											.with(TemporalAdjusters.lastDayOfMonth());
-		dt.setDt(
-				DatatypeFactory
-					.newInstance().
-					newXMLGregorianCalendar(GregorianCalendar.from(closingDate)));
+		// Incremental statement ends with newest row, monthly with last day of month
+		final ZonedDateTime closingDate = sequence > 0 ?
+											period.endDate :
+											period.endDate.with(TemporalAdjusters.lastDayOfMonth());
+		dt.setDt(dates.date(closingDate.toLocalDate()));
 		balance.setDt(dt);
 
 		return balance;
@@ -250,8 +640,13 @@ public class BankToCustomerStatement {
 
 		final PostalAddress6 partyAddress = factory.createPostalAddress6();
 		partyAddress.setCtry(partyCountryCode);
-		partyAddress.getAdrLine().add(partyAdrLine1);
-		partyAddress.getAdrLine().add(partyAdrLine2);
+		// AdrLine is Max70Text, empty line is not valid
+		if (StringUtils.isNotBlank(partyAdrLine1)) {
+			partyAddress.getAdrLine().add(partyAdrLine1);
+		}
+		if (StringUtils.isNotBlank(partyAdrLine2)) {
+			partyAddress.getAdrLine().add(partyAdrLine2);
+		}
 		PartyIdentification32 partyId = factory.createPartyIdentification32();
 		partyId.setNm(partyName);
 		partyId.setPstlAdr(partyAddress);
@@ -271,6 +666,28 @@ public class BankToCustomerStatement {
 	}
 
 	private AccountStatement2 accountStatement(
+			final StatementPeriod period,
+			final String partyCountryCode,
+			final String partyAdrLine1,
+			final String partyAdrLine2,
+			final String partyName,
+			final String branchCountry,
+			final String branchBic,
+			final String branchName,
+			final String iban) throws DatatypeConfigurationException, ParseException {
+		final AccountStatement2 accStmt = accountStatementHeader(period,
+				partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
+				branchCountry, branchBic, branchName, iban);
+		processTransactions(period, accStmt);
+//		accStmt.getNtry().add(null)
+		return accStmt;
+	}
+
+	/**
+	 * Builds statement without TxsSummry and Ntry elements
+	 */
+	private AccountStatement2 accountStatementHeader(
+			final StatementPeriod period,
 			final String partyCountryCode,
 			final String partyAdrLine1,
 			final String partyAdrLine2,
@@ -280,95 +697,105 @@ public class BankToCustomerStatement {
 			final String branchName,
 			final String iban) throws DatatypeConfigurationException, ParseException {
 		final AccountStatement2 accStmt = factory.createAccountStatement2();
-		accStmt.setId("REVOLUTSTMT" + startDate.getMonthValue() + "/" + startDate.getYear() + "-" + currencyCode);
-		accStmt.setLglSeqNb(BigDecimal.valueOf(Integer.parseInt(startDate.getYear() + "" + startDate.getMonthValue())));
-		accStmt.setCreDtTm(DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar));
+		final ZonedDateTime startDate = period.startDate;
+		if (sequence > 0) {
+			accStmt.setId("REVOLUTSTMT" + period.endDate.toLocalDate() + "/" + sequence + "-" + currencyCode);
+			accStmt.setLglSeqNb(BigDecimal.valueOf(sequence));
+		} else {
+			accStmt.setId("REVOLUTSTMT" + startDate.getMonthValue() + "/" + startDate.getYear() + "-" + currencyCode);
+			accStmt.setLglSeqNb(BigDecimal.valueOf(Integer.parseInt(startDate.getYear() + "" + startDate.getMonthValue())));
+		}
+		accStmt.setCreDtTm(XmlDateCache.dateTime(calendar));
 		accStmt.setAcct(cashAccount(
 				partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
 				branchCountry, branchBic, branchName, iban));
 
-		accStmt.getBal().add(openingBalance());
-		accStmt.getBal().add(closingBalance());
-		processTransactions(accStmt);
-//		accStmt.getNtry().add(null)
+		accStmt.getBal().add(openingBalance(period));
+		accStmt.getBal().add(closingBalance(period));
 		return accStmt;
 	}
 
-	private void processTransactions(final AccountStatement2 accStmt) {
-		final TotalTransactions2 txsSummry = factory.createTotalTransactions2();
-
-		final NumberAndSumOfTransactions1 cdt = factory.createNumberAndSumOfTransactions1();
-		final NumberAndSumOfTransactions1 dbt = factory.createNumberAndSumOfTransactions1();
-
-		final AtomicInteger cdtCount = new AtomicInteger(0);
-		cdt.setSum(BigDecimal.ZERO);
-		final AtomicInteger dbtCount = new AtomicInteger(0);
-		dbt.setSum(BigDecimal.ZERO);
-		rows.forEach(row -> {
+	private void processTransactions(
+			final StatementPeriod period, final AccountStatement2 accStmt) throws DatatypeConfigurationException {
+		final Totals totals = period.totals;
+		totals.clear();
+		if (parallelism > 1 && period.to - period.from > parallelThreshold) {
+			final ReportEntry2[] entries = new ReportEntry2[period.to - period.from];
+			final EntryTask task = new EntryTask(period.from, period.to, period.from, entries);
 			try {
-				accStmt.getNtry().add(transactionLine(row));
-
-				final BigDecimal amount = (BigDecimal) decimalFormat.parse(row.get("Amount"));
-				if (amount.compareTo(BigDecimal.ZERO) < 0) {
-					// Debit
-					dbtCount.incrementAndGet();
-					dbt.setSum(amount.abs().add(dbt.getSum()));
+				pool().invoke(task);
+			} catch (CompletionException ce) {
+				if (ce.getCause() instanceof DatatypeConfigurationException) {
+					throw (DatatypeConfigurationException) ce.getCause();
 				} else {
-					// Credit
-					cdtCount.incrementAndGet();
-					cdt.setSum(amount.add(cdt.getSum()));
+					throw ce;
 				}
-			} catch (ParseException | DatatypeConfigurationException e) {
-				//TODO
-				//TODO Auto-generated catch block
-				//TODO
-				e.printStackTrace();
 			}
-		});
-		cdt.setNbOfNtries(cdtCount.toString());
-		dbt.setNbOfNtries(dbtCount.toString());
+			accStmt.getNtry().addAll(Arrays.asList(entries));
+			totals.merge(task.totals);
+		} else {
+			for (int row = period.from; row < period.to; row++) {
+				final long amount = columns.amount(row);
+				accStmt.getNtry().add(transactionLine(
+						columns.started(row), columns.completed(row), amount,
+						columns.id(row), columns.reference(row), columns.description(row)));
+				totals.add(amount);
+			}
+		}
+		accStmt.setTxsSummry(transactionsSummary(totals));
+	}
 
+	private TotalTransactions2 transactionsSummary(final Totals totals) {
+		final TotalTransactions2 txsSummry = factory.createTotalTransactions2();
+		final NumberAndSumOfTransactions1 cdt = factory.createNumberAndSumOfTransactions1();
+		cdt.setNbOfNtries(Integer.toString(totals.cdtCount));
+		cdt.setSum(MoneyParser.toBigDecimal(totals.cdtSum));
+		final NumberAndSumOfTransactions1 dbt = factory.createNumberAndSumOfTransactions1();
+		dbt.setNbOfNtries(Integer.toString(totals.dbtCount));
+		dbt.setSum(MoneyParser.toBigDecimal(totals.dbtSum));
 		txsSummry.setTtlCdtNtries(cdt);
 		txsSummry.setTtlDbtNtries(dbt);
-
-		accStmt.setTxsSummry(txsSummry);
+		return txsSummry;
 	}
 
-	private ReportEntry2 transactionLine(final CSVRecord row) throws ParseException, DatatypeConfigurationException {
+	/**
+	 * 
+	 * @param started     - "Date started" as epoch day
+	 * @param completed   - "Date completed" as epoch day
+	 * @param amount      - "Amount" in minor units
+	 * @param id          - "ID"
+	 * @param ntryRef     - "Reference"
+	 * @param ustrd       - "Description"
+	 */
+	private ReportEntry2 transactionLine(
+			final int started,
+			final int completed,
+			final long amount,
+			final String id,
+			final String ntryRef,
+			final String ustrd) throws DatatypeConfigurationException {
 		final ReportEntry2 reportEntry = factory.createReportEntry2();
 
 		final ActiveOrHistoricCurrencyAndAmount amt = factory.createActiveOrHistoricCurrencyAndAmount();
-		final BigDecimal amount = (BigDecimal) decimalFormat.parse(row.get("Amount"));
 		amt.setCcy(currencyCode);
-		if (amount.compareTo(BigDecimal.ZERO) < 0) {
-			amt.setValue(amount.abs());
+		if (amount < 0) {
+			amt.setValue(MoneyParser.toBigDecimal(-amount));
 			reportEntry.setCdtDbtInd(CreditDebitCode.DBIT);
 		} else {
-			amt.setValue(amount);
+			amt.setValue(MoneyParser.toBigDecimal(amount));
 			reportEntry.setCdtDbtInd(CreditDebitCode.CRDT);
 		}
 		reportEntry.setAmt(amt);
 		reportEntry.setSts(EntryStatus2Code.BOOK);
 
 		final DateAndDateTimeChoice bookgDt = factory.createDateAndDateTimeChoice();
-		final ZonedDateTime bookgDate = LocalDate
-					.parse(row.get(fieldCompleted), DateTimeFormatter.ISO_DATE)
-					.atStartOfDay(localZoneId);   
-		bookgDt.setDt(DatatypeFactory
-				.newInstance()
-				.newXMLGregorianCalendar(GregorianCalendar.from(bookgDate)));
+		bookgDt.setDt(dates.date(completed));
 		reportEntry.setBookgDt(bookgDt);
 		final DateAndDateTimeChoice valDt = factory.createDateAndDateTimeChoice();
-		final ZonedDateTime valDate = LocalDate
-					.parse(row.get(fieldStarted), DateTimeFormatter.ISO_DATE)
-					.atStartOfDay(localZoneId);   
-		valDt.setDt(DatatypeFactory
-				.newInstance()
-				.newXMLGregorianCalendar(GregorianCalendar.from(valDate)));
+		valDt.setDt(dates.date(started));
 		reportEntry.setValDt(valDt);
 
 
-		final String ntryRef = row.get("Reference");
 		if (StringUtils.isNotBlank(ntryRef)) {
 			if (ntryRef.length() > MAX_35_TEXT) {
 				reportEntry.setNtryRef(ntryRef.substring(0, MAX_35_TEXT - 1));
@@ -381,7 +808,7 @@ public class BankToCustomerStatement {
 		}
 
 		//Replace dashes to in 35 char limit!
-		final String transId = row.get("ID").replace("-", "");
+		final String transId = id.replace("-", "");
 		BankTransactionCodeStructure4 bkTxCd = factory.createBankTransactionCodeStructure4();
 		ProprietaryBankTransactionCodeStructure1 btc = factory.createProprietaryBankTransactionCodeStructure1();
 		btc.setCd(transId);
@@ -395,7 +822,6 @@ public class BankToCustomerStatement {
 		transRefs.setEndToEndId("NOTPROVIDED");
 		trans.setRefs(transRefs);
 
-		final String ustrd = row.get("Description");
 		if (StringUtils.isNotBlank(ustrd)) {
 			RemittanceInformation5 ri = factory.createRemittanceInformation5();
 			if (ustrd.length() > MAX_140_TEXT) {
@@ -422,27 +848,359 @@ public class BankToCustomerStatement {
 			final String branchName,
 			final String statementIban,
 			final String outputFile) throws IOException {
+		write(partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
+				branchCountry, branchBic, branchName, statementIban, outputFile, Split.NONE);
+	}
 
-		BankToCustomerStatementV02 statement = factory.createBankToCustomerStatementV02();
-		try {
-			statement.setGrpHdr(groupHeader());
-			statement.getStmt().add(accountStatement(
+	/**
+	 * 
+	 * @param split - output of statement which covers several months, for Split.FILES
+	 *                month is appended to outputFile name, for example statement-2022-05.xml
+	 */
+	public void write(
+			final String partyCountryCode,
+			final String partyAdrLine1,
+			final String partyAdrLine2,
+			final String partyName,
+			final String branchCountry,
+			final String branchBic,
+			final String branchName,
+			final String statementIban,
+			final String outputFile,
+			final Split split) throws IOException {
+		if (statement == null) {
+			throw new IOException("No new rows in " + fileName + "!");
+		}
+		if (sequence > 0 && split != Split.NONE) {
+			throw new IOException("Splitting incremental statement by month is not supported!");
+		}
+		// IDs are added to index only when all output is committed
+		try (TransactionIndex.Batch batch = known == null ? null : known.batch()) {
+			if (validate) {
+				checkAccounts(statementIban, branchBic);
+			}
+			if (streaming) {
+				if (split != Split.NONE) {
+					throw new IOException("Splitting statement by month is not supported in streaming mode!");
+				}
+				writeStreaming(
+					partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
+					branchCountry, branchBic, branchName, statementIban, outputFile, batch);
+			} else {
+				writeInMemory(partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
+						branchCountry, branchBic, branchName, statementIban, outputFile, split);
+				if (batch != null) {
+					for (int row = statement.from; row < statement.to; row++) {
+						batch.add(columns.id(row));
+					}
+				}
+			}
+			if (batch != null) {
+				batch.commit();
+			}
+			metrics.rows(statement.to - statement.from);
+			metrics.converted();
+		} catch (IOException | RuntimeException e) {
+			metrics.failed();
+			throw e;
+		}
+	}
+
+	private void writeInMemory(
+			final String partyCountryCode,
+			final String partyAdrLine1,
+			final String partyAdrLine2,
+			final String partyName,
+			final String branchCountry,
+			final String branchBic,
+			final String branchName,
+			final String statementIban,
+			final String outputFile,
+			final Split split) throws IOException {
+		final List<StatementPeriod> periods;
+		if (split == Split.NONE) {
+			if (statement.multiMonth()) {
+				LOGGER.warn("Statement {} covers more than one month, consider splitting it by month.", fileName);
+			}
+			periods = Collections.singletonList(statement);
+		} else {
+			periods = monthlyPeriods();
+		}
+
+		// Every month is built (and for Split.FILES written) in parallel
+		final List<Callable<AccountStatement2>> tasks = new ArrayList<>(periods.size());
+		for (StatementPeriod period : periods) {
+			tasks.add(() -> {
+				final long started = System.nanoTime();
+				final AccountStatement2 accStmt = accountStatement(period,
+						partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
+						branchCountry, branchBic, branchName, statementIban);
+				metrics.phase(Phase.BUILD, started);
+				if (split == Split.FILES) {
+					final String month = YearMonth.from(period.startDate).toString();
+					final BankToCustomerStatementV02 monthStatement = factory.createBankToCustomerStatementV02();
+					monthStatement.setGrpHdr(groupHeader(StringUtils.remove(month, '-')));
+					monthStatement.getStmt().add(accStmt);
+					marshal(monthStatement,
+							StringUtils.removeEndIgnoreCase(outputFile, ".xml") + "-" + month + ".xml");
+				}
+				return accStmt;
+			});
+		}
+		final List<AccountStatement2> statements = invokeAll(tasks);
+
+		if (split != Split.FILES) {
+			marshal(statements, outputFile);
+		}
+	}
+
+	/**
+	 * Builds statement header with account and balances, first phase of write(),
+	 * package-private for benchmarks
+	 */
+	AccountStatement2 statementHeader(
+			final String partyCountryCode,
+			final String partyAdrLine1,
+			final String partyAdrLine2,
+			final String partyName,
+			final String branchCountry,
+			final String branchBic,
+			final String branchName,
+			final String iban) throws DatatypeConfigurationException, ParseException {
+		return accountStatementHeader(statement,
 				partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
-				branchCountry, branchBic, branchName, statementIban));
-
-			Document document = factory.createDocument();
-			document.setBkToCstmrStmt(statement);
-			JAXBContext jaxbCtx = JAXBContext.newInstance(Document.class);
-			Marshaller marshaller = jaxbCtx.createMarshaller();
-			marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8"); 
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-			OutputStream os = new FileOutputStream(outputFile);
-			marshaller.marshal(new ObjectFactory().createDocument(document), os);
+				branchCountry, branchBic, branchName, iban);
+	}
+
+	/**
+	 * Adds Ntry and TxsSummry for whole statement, second phase of write(),
+	 * package-private for benchmarks
+	 */
+	void statementEntries(final AccountStatement2 accStmt) throws DatatypeConfigurationException {
+		processTransactions(statement, accStmt);
+	}
+
+	/**
+	 * Writes statements with group header to outputFile, last phase of write()
+	 */
+	void marshal(final List<AccountStatement2> statements, final String outputFile) throws IOException {
+		try {
+			final BankToCustomerStatementV02 bkToCstmrStmt = factory.createBankToCustomerStatementV02();
+			bkToCstmrStmt.setGrpHdr(groupHeader());
+			bkToCstmrStmt.getStmt().addAll(statements);
+			marshal(bkToCstmrStmt, outputFile);
 		} catch (DatatypeConfigurationException | ParseException | JAXBException e) {
 			throw new IOException(e);
 		}
 	}
 
+	/**
+	 * Statement IBAN and branch BIC are written to every Acct, invalid value is rejected before
+	 * statement is read
+	 */
+	private void checkAccounts(final String statementIban, final String branchBic) throws IOException {
+		final ValidationErrors errors = new ValidationErrors("Account of statement " + fileName);
+		final AccountValidator.Result ibanResult = AccountValidator.iban(statementIban);
+		if (!ibanResult.valid()) {
+			errors.error("IBAN " + statementIban + " - " + ibanResult.description());
+		}
+		final AccountValidator.Result bicResult = AccountValidator.bic(branchBic);
+		if (!bicResult.valid()) {
+			errors.error("branch BIC " + branchBic + " - " + bicResult.description());
+		}
+		try {
+			errors.check();
+		} catch (ValidationException ve) {
+			metrics.rejected(1);
+			throw new IOException(ve);
+		}
+	}
+
+	private void marshal(final BankToCustomerStatementV02 bkToCstmrStmt, final String outputFile)
+			throws IOException, JAXBException {
+		final Document document = factory.createDocument();
+		document.setBkToCstmrStmt(bkToCstmrStmt);
+		final ValidationErrors errors = validate ? new ValidationErrors(outputFile) : null;
+		final Marshaller marshaller = validate ?
+				JaxbContexts.camt053().borrowMarshaller(errors) :
+				JaxbContexts.camt053().borrowMarshaller();
+		final long started = System.nanoTime();
+		try (OutputSink.Output output = sink.open(outputFile)) {
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, !sink.compact());
+			try {
+				marshaller.marshal(factory.createDocument(document), output.stream());
+			} catch (MarshalException me) {
+				// Marshaller stops at first validation error, report it with collected errors
+				if (errors != null) {
+					errors.check();
+				}
+				throw me;
+			}
+			if (errors != null) {
+				errors.check();
+			}
+			final long flushStarted = metrics.phase(Phase.WRITE, started);
+			output.commit();
+			metrics.phase(Phase.FLUSH, flushStarted);
+			metrics.bytesOut(output.bytes());
+		} finally {
+			JaxbContexts.camt053().release(marshaller);
+		}
+	}
+
+	/**
+	 * Runs tasks in common ForkJoinPool
+	 * 
+	 * @return results in order of tasks
+	 */
+	private static <T> List<T> invokeAll(final List<Callable<T>> tasks) throws IOException {
+		final List<T> results = new ArrayList<>(tasks.size());
+		try {
+			if (tasks.size() == 1) {
+				results.add(tasks.get(0).call());
+			} else {
+				for (Future<T> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+					results.add(future.get());
+				}
+			}
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof IOException) {
+				throw (IOException) ee.getCause();
+			} else {
+				throw new IOException(ee.getCause());
+			}
+		} catch (IOException ioe) {
+			throw ioe;
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException(ie);
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
+		return results;
+	}
+
+	/**
+	 * Writes GrpHdr, Stmt, Bal and TxsSummry envelope using XMLStreamWriter and marshals
+	 * every Ntry as fragment while statement rows are read, memory usage does not depend
+	 * on statement size
+	 */
+	private void writeStreaming(
+			final String partyCountryCode,
+			final String partyAdrLine1,
+			final String partyAdrLine2,
+			final String partyName,
+			final String branchCountry,
+			final String branchBic,
+			final String branchName,
+			final String statementIban,
+			final String outputFile,
+			final TransactionIndex.Batch batch) throws IOException {
+		try (Reader in = StatementInput.open(fileName);
+				CSVParser parser = new CSVParser(in, csvFormat());
+				OutputSink.Output output = sink.open(outputFile)) {
+			final Marshaller marshaller = JaxbContexts.camt053().borrowMarshaller();
+			try {
+				writeStreaming(marshaller, output, parser, batch,
+						partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
+						branchCountry, branchBic, branchName, statementIban);
+			} finally {
+				JaxbContexts.camt053().release(marshaller);
+			}
+		} catch (ParseException | ArithmeticException e) {
+			metrics.rejected(1);
+			throw new IOException(e);
+		} catch (DatatypeConfigurationException | JAXBException | XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void writeStreaming(
+			final Marshaller marshaller,
+			final OutputSink.Output output,
+			final CSVParser parser,
+			final TransactionIndex.Batch batch,
+			final String partyCountryCode,
+			final String partyAdrLine1,
+			final String partyAdrLine2,
+			final String partyName,
+			final String branchCountry,
+			final String branchBic,
+			final String branchName,
+			final String statementIban)
+					throws DatatypeConfigurationException, ParseException, JAXBException, XMLStreamException, IOException {
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+
+		final long started = System.nanoTime();
+		// Marshaller writes only fragments, whole document is validated by writer
+		final ValidationErrors errors = validate ? new ValidationErrors(output.path().toString()) : null;
+		final XMLStreamWriter writer = validate ?
+				StreamValidation.writer(
+						XMLOutputFactory.newInstance().createXMLStreamWriter(output.stream(), "UTF-8"),
+						JaxbContexts.camt053().schema(), errors) :
+				XMLOutputFactory.newInstance().createXMLStreamWriter(output.stream(), "UTF-8");
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.setDefaultNamespace(CAMT053_NS);
+		writer.writeStartElement(CAMT053_NS, "Document");
+		writer.writeDefaultNamespace(CAMT053_NS);
+		writer.writeStartElement(CAMT053_NS, "BkToCstmrStmt");
+		marshaller.marshal(fragment("GrpHdr", GroupHeader42.class, groupHeader()), writer);
+
+		final AccountStatement2 accStmt = accountStatementHeader(statement,
+				partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
+				branchCountry, branchBic, branchName, statementIban);
+		writer.writeStartElement(CAMT053_NS, "Stmt");
+		simpleElement(writer, "Id", accStmt.getId());
+		simpleElement(writer, "LglSeqNb", accStmt.getLglSeqNb().toPlainString());
+		simpleElement(writer, "CreDtTm", accStmt.getCreDtTm().toXMLFormat());
+		marshaller.marshal(fragment("Acct", CashAccount20.class, accStmt.getAcct()), writer);
+		for (CashBalance3 balance : accStmt.getBal()) {
+			marshaller.marshal(fragment("Bal", CashBalance3.class, balance), writer);
+		}
+		marshaller.marshal(fragment("TxsSummry", TotalTransactions2.class, transactionsSummary(statement.totals)), writer);
+		// In incremental mode rows after checkpoint are not read
+		final Iterator<CSVRecord> rows = parser.iterator();
+		int entries = statement.from;
+		while (entries < statement.to) {
+			final CSVRecord row = rows.next();
+			final String id = layout.id(row);
+			if (known != null && known.contains(id)) {
+				continue;
+			}
+			marshaller.marshal(fragment("Ntry", ReportEntry2.class, transactionLine(
+					layout.started(row), layout.completed(row), layout.amount(row),
+					id, layout.reference(row), layout.description(row))), writer);
+			if (batch != null) {
+				batch.add(id);
+			}
+			entries++;
+		}
+		writer.writeEndElement(); // Stmt
+		writer.writeEndElement(); // BkToCstmrStmt
+		writer.writeEndElement(); // Document
+		final long flushStarted = metrics.phase(Phase.WRITE, started);
+		writer.writeEndDocument();
+		writer.flush();
+		writer.close();
+		if (errors != null) {
+			errors.check();
+		}
+		output.commit();
+		metrics.phase(Phase.FLUSH, flushStarted);
+		metrics.bytesOut(output.bytes());
+	}
+
+	private static <T> JAXBElement<T> fragment(final String localName, final Class<T> clazz, final T value) {
+		return new JAXBElement<>(new QName(CAMT053_NS, localName), clazz, value);
+	}
+
+	private static void simpleElement(
+			final XMLStreamWriter writer, final String localName, final String value) throws XMLStreamException {
+		writer.writeStartElement(CAMT053_NS, localName);
+		writer.writeCharacters(value);
+		writer.writeEndElement();
+	}
+
 	public static void main(String[] argv) {
 		// Check for valid log4j configuration
 		final String log4jConfig = System.getProperty("a2.log4j.configuration");
@@ -483,12 +1241,77 @@ public class BankToCustomerStatement {
 		optionIban.setRequired(true);
 		options.addOption(optionIban);
 
+		final Option optionStreaming = new Option("x", "streaming", false,
+				"Do not build statement in memory, write camt.053 entries while reading Revolut statement.");
+		optionStreaming.setRequired(false);
+		options.addOption(optionStreaming);
+
+		final Option optionSplit = new Option("m", "split-months", true,
+				"Split statement which covers several months: \"statements\" - one Stmt per month in single file, \"files\" - one file per month.");
+		optionSplit.setRequired(false);
+		options.addOption(optionSplit);
+
+		final Option optionParallelism = new Option("P", "parallelism", true,
+				"Number of threads building statement entries, default - number of available processors, 1 - build entries sequentially.");
+		optionParallelism.setRequired(false);
+		options.addOption(optionParallelism);
+
+		final Option optionThreshold = new Option("t", "parallel-threshold", true,
+				"Minimal number of statement rows processed by one thread, default - " + DEFAULT_PARALLEL_THRESHOLD + ".");
+		optionThreshold.setRequired(false);
+		options.addOption(optionThreshold);
+
+		final Option optionCompact = new Option("C", "compact", false,
+				"Write camt.053 without indentation.");
+		optionCompact.setRequired(false);
+		options.addOption(optionCompact);
+
+		final Option optionGzip = new Option("z", "gzip", false,
+				"Compress camt.053 with gzip, .gz is appended to file name.");
+		optionGzip.setRequired(false);
+		options.addOption(optionGzip);
+
+		final Option optionDigest = new Option("d", "digest", false,
+				"Write SHA-256 digest of camt.053 file to file with .sha256 extension.");
+		optionDigest.setRequired(false);
+		options.addOption(optionDigest);
+
+		final Option optionCheckpoint = new Option("c", "checkpoint", true,
+				"Incremental conversion: file with newest converted row of every account, only newer rows are converted and Date completed of newest row is appended to camt.053 file name.");
+		optionCheckpoint.setRequired(false);
+		options.addOption(optionCheckpoint);
+
+		final Option optionDedup = new Option("u", "dedup-index", true,
+				"Directory with index of converted transaction IDs of every account, rows converted before are skipped.");
+		optionDedup.setRequired(false);
+		options.addOption(optionDedup);
+
+		final Option optionValidate = new Option("v", "validate", false,
+				"Validate camt.053 against XSD while it is written and check statement IBAN and BIC, invalid file is not created.");
+		optionValidate.setRequired(false);
+		options.addOption(optionValidate);
+
 		CommandLineParser parser = new DefaultParser();
 		HelpFormatter formatter = new HelpFormatter();
 		CommandLine cmd = null;
+		Split split = Split.NONE;
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		int threshold = DEFAULT_PARALLEL_THRESHOLD;
 		try {
 			cmd = parser.parse(options, argv);
-		} catch (org.apache.commons.cli.ParseException pe) {
+			if (cmd.hasOption("m")) {
+				split = Split.valueOf(StringUtils.upperCase(cmd.getOptionValue("m")));
+			}
+			if (cmd.hasOption("P")) {
+				parallelism = Integer.parseInt(cmd.getOptionValue("P"));
+			}
+			if (cmd.hasOption("t")) {
+				threshold = Integer.parseInt(cmd.getOptionValue("t"));
+			}
+			if (parallelism < 1 || threshold < 1) {
+				throw new org.apache.commons.cli.ParseException("Parallelism and threshold must be positive!");
+			}
+		} catch (org.apache.commons.cli.ParseException | IllegalArgumentException pe) {
 			LOGGER.error(pe.getMessage());
 			formatter.printHelp(BankToCustomerStatement.class.getCanonicalName(), options);
 			System.exit(1);
@@ -498,12 +1321,38 @@ public class BankToCustomerStatement {
 		final String partyAddress = cmd.getOptionValue("a");
 		final String partyName = cmd.getOptionValue("n");
 		final String iban = cmd.getOptionValue("i");
-
-		try {
+		final boolean streaming = cmd.hasOption("x");
+
+		try (TransactionIndex known = cmd.hasOption("u") ?
+				TransactionIndex.open(Paths.get(cmd.getOptionValue("u")), iban) : null) {
+			final StatementCheckpoint checkpoint = cmd.hasOption("c") ?
+					StatementCheckpoint.load(Paths.get(cmd.getOptionValue("c"))) : null;
+			final StatementCheckpoint.Entry since = checkpoint == null ?
+					null : checkpoint.get(iban, PropertiesManager.CURRENCY_CODE);
 			BankToCustomerStatement revolut = new BankToCustomerStatement(
 					PropertiesManager.TZ,
 					PropertiesManager.CURRENCY_CODE,
-					fileName);
+					fileName,
+					streaming,
+					since,
+					known);
+			if (revolut.empty()) {
+				if (since != null) {
+					LOGGER.info("No new rows in {} after {} completed {}.", fileName, since.id(), since.completed());
+				} else {
+					LOGGER.info("No new rows in {}, all rows were converted before.", fileName);
+				}
+				return;
+			}
+			String outputFile = SepaUtils.getOutputName(fileName, false);
+			if (checkpoint != null) {
+				outputFile = StringUtils.removeEndIgnoreCase(outputFile, ".xml") +
+						"-" + revolut.checkpoint().completed() + ".xml";
+				revolut.sequence(since == null ? 1 : since.sequence() + 1);
+			}
+			revolut.parallel(parallelism, threshold);
+			revolut.sink(new OutputSink(cmd.hasOption("C"), cmd.hasOption("z"), cmd.hasOption("d")));
+			revolut.validate(cmd.hasOption("v"));
 			revolut.write(
 					PropertiesManager.PARTY_COUNTRY,
 					partyAddress,
@@ -513,7 +1362,13 @@ public class BankToCustomerStatement {
 					PropertiesManager.BIC,
 					PropertiesManager.BRANCH,
 					iban,
-					SepaUtils.getOutputName(fileName, false));
+					outputFile,
+					split);
+			if (checkpoint != null) {
+				// Checkpoint is moved only after camt.053 is written
+				checkpoint.put(iban, PropertiesManager.CURRENCY_CODE, revolut.checkpoint());
+				checkpoint.store();
+			}
 		} catch (IOException e) {
 			LOGGER.error(e.getMessage());
 			final StringWriter sw = new StringWriter();
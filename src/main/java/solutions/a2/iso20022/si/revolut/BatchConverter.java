@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.PropertyConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts all Revolut statements (.csv, .csv.gz, .zip) and pain.001.001.03 files (.xml)
+ * from directory or matching glob on bounded worker pool. Results of previous run written
+ * beside sources are not converted again. Every file fails independently, summary is
+ * printed when all files are processed.
+ */
+public class BatchConverter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BatchConverter.class);
+
+	private final FileConverter converter;
+	private final int workers;
+
+	public BatchConverter(final FileConverter converter, final int workers) {
+		this.converter = converter;
+		this.workers = workers;
+	}
+
+	/**
+	 * Lists files to convert. When results are written beside sources, file which is output
+	 * of other listed file (statement.xml of statement.csv, payroll.csv of payroll.xml) and is
+	 * not older than it is result of previous run and is skipped.
+	 *
+	 * @param source          - directory or glob, for example /data/revolut/statement-2022-*.csv
+	 * @param outputDirectory - directory for results, null when results are written beside sources
+	 * @return list of matching files
+	 * @throws IOException
+	 */
+	public static List<Path> sources(final String source, final Path outputDirectory) throws IOException {
+		final Path path = Paths.get(source);
+		final List<Path> files = new ArrayList<>();
+		final Path directory;
+		if (Files.isDirectory(path)) {
+			directory = path;
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+					file -> FileConverter.isStatement(file) || FileConverter.isPaymentBatch(file))) {
+				for (Path file : stream) {
+					if (Files.isRegularFile(file)) {
+						files.add(file);
+					}
+				}
+			}
+		} else {
+			directory = path.getParent() == null ? Paths.get(".") : path.getParent();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, path.getFileName().toString())) {
+				for (Path file : stream) {
+					if (Files.isRegularFile(file)) {
+						files.add(file);
+					}
+				}
+			}
+		}
+		if (outputDirectory == null ||
+				(Files.isDirectory(outputDirectory) && Files.isSameFile(outputDirectory, directory))) {
+			skipOutputs(files);
+		}
+		files.sort(null);
+		return files;
+	}
+
+	private static void skipOutputs(final List<Path> files) throws IOException {
+		final Map<Path, Path> outputs = new HashMap<>();
+		for (Path file : files) {
+			outputs.put(FileConverter.outputPath(file, null), file);
+		}
+		final List<Path> skipped = new ArrayList<>();
+		for (Path file : files) {
+			final Path source = outputs.get(file);
+			if (source != null && Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(source)) >= 0) {
+				skipped.add(file);
+				LOGGER.info("{} is skipped, it is result of {}.", file, source);
+			}
+		}
+		files.removeAll(skipped);
+	}
+
+	/**
+	 *
+	 * @param files           - files to convert
+	 * @param outputDirectory - directory for results, null to write results beside source files
+	 * @return per-file results in order of files
+	 * @throws InterruptedException
+	 */
+	public List<Result> convert(final List<Path> files, final Path outputDirectory) throws InterruptedException {
+		final List<Result> results = new ArrayList<>(files.size());
+		if (files.isEmpty()) {
+			return results;
+		}
+		try {
+			// Build JAXB contexts once before workers start
+			JaxbContexts.camt053().context();
+			JaxbContexts.pain001().context();
+		} catch (JAXBException e) {
+			LOGGER.error("Unable to create JAXBContext: {}", e.getMessage());
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, files.size()));
+		try {
+			final List<Future<Result>> futures = new ArrayList<>(files.size());
+			for (Path source : files) {
+				futures.add(executor.submit(() -> convert(source, FileConverter.outputPath(source, outputDirectory))));
+			}
+			for (int i = 0; i < files.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException ee) {
+					results.add(new Result(files.get(i), null, 0, ee.getCause()));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	private Result convert(final Path source, final Path output) {
+		final long started = System.nanoTime();
+		try {
+			converter.convert(source, output);
+			final long millis = (System.nanoTime() - started) / 1_000_000;
+			LOGGER.info("{} converted to {} in {} ms.", source, output, millis);
+			return new Result(source, output, millis, null);
+		} catch (IOException | JAXBException | RuntimeException e) {
+			LOGGER.error("Unable to convert {}: {}", source, e.getMessage());
+			final StringWriter sw = new StringWriter();
+			final PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			LOGGER.error(sw.toString());
+			return new Result(source, output, (System.nanoTime() - started) / 1_000_000, e);
+		}
+	}
+
+	public static String summary(final List<Result> results) {
+		final StringBuilder sb = new StringBuilder(256);
+		int failed = 0;
+		long millis = 0;
+		for (Result result : results) {
+			millis += result.millis;
+			if (result.failed()) {
+				failed++;
+			}
+		}
+		sb.append("Files processed: ")
+			.append(results.size())
+			.append(", converted: ")
+			.append(results.size() - failed)
+			.append(", failed: ")
+			.append(failed)
+			.append(", total conversion time: ")
+			.append(millis)
+			.append(" ms.");
+		for (Result result : results) {
+			if (result.failed()) {
+				sb.append("\n\tFAILED ")
+					.append(result.source)
+					.append(": ")
+					.append(result.error.getMessage());
+			}
+		}
+		return sb.toString();
+	}
+
+	public static class Result {
+
+		private final Path source;
+		private final Path output;
+		private final long millis;
+		private final Throwable error;
+
+		Result(final Path source, final Path output, final long millis, final Throwable error) {
+			this.source = source;
+			this.output = output;
+			this.millis = millis;
+			this.error = error;
+		}
+
+		public Path source() {
+			return source;
+		}
+
+		public Path output() {
+			return output;
+		}
+
+		public long millis() {
+			return millis;
+		}
+
+		public Throwable error() {
+			return error;
+		}
+
+		public boolean failed() {
+			return error != null;
+		}
+
+	}
+
+	public static void main(String[] argv) {
+		// Check for valid log4j configuration
+		final String log4jConfig = System.getProperty("a2.log4j.configuration");
+		if (log4jConfig == null || "".equals(log4jConfig)) {
+			BasicConfigurator.configure();
+			LOGGER.warn("JVM argument -Da2.log4j.configuration not set!");
+		} else {
+			// Check that log4j configuration file exist
+			Path path = Paths.get(log4jConfig);
+			if (!Files.exists(path) || Files.isDirectory(path)) {
+				BasicConfigurator.configure();
+				LOGGER.error("JVM argument -Da2.log4j.configuration points to unknown file {}.", log4jConfig);
+			} else {
+				// Initialize log4j
+				PropertyConfigurator.configure(log4jConfig);
+			}
+		}
+
+		final Options options = new Options();
+
+		final Option optionSource = new Option("s", "source", true,
+				"Directory or glob (for example /data/statement-*.csv) with Revolut statements (.csv, .csv.gz, .zip) and/or pain.001.001.03 files (.xml).");
+		optionSource.setRequired(true);
+		options.addOption(optionSource);
+
+		final Option optionOutput = new Option("o", "output-directory", true,
+				"Directory for converted files, when not set converted files are written beside source files.");
+		optionOutput.setRequired(false);
+		options.addOption(optionOutput);
+
+		final Option optionPartyAddress = new Option("a", "party-address", true,
+				"Party address, when not set value from Setup is used.");
+		optionPartyAddress.setRequired(false);
+		options.addOption(optionPartyAddress);
+
+		final Option optionPartyName = new Option("n", "party-name", true,
+				"Party name, when not set value from Setup is used.");
+		optionPartyName.setRequired(false);
+		options.addOption(optionPartyName);
+
+		final Option optionIban = new Option("i", "iban", true,
+				"Statement IBAN, when not set value from Setup is used.");
+		optionIban.setRequired(false);
+		options.addOption(optionIban);
+
+		final Option optionPersonalIbans = new Option("p", "personal-ibans", true,
+				"Comma separated list of personal IBAN's, when not set value from Setup is used.");
+		optionPersonalIbans.setRequired(false);
+		options.addOption(optionPersonalIbans);
+
+		final Option optionPersonalIbansFile = new Option("f", "personal-ibans-file", true,
+				"File with personal IBAN's, reloaded when changed. Used when personal IBAN's are not set.");
+		optionPersonalIbansFile.setRequired(false);
+		options.addOption(optionPersonalIbansFile);
+
+		final Option optionWorkers = new Option("w", "workers", true,
+				"Number of parallel conversions, default - number of available processors.");
+		optionWorkers.setRequired(false);
+		options.addOption(optionWorkers);
+
+		final Option optionStreaming = new Option("x", "streaming", false,
+				"Convert files without building whole document in memory.");
+		optionStreaming.setRequired(false);
+		options.addOption(optionStreaming);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cmd = null;
+		int workers = Runtime.getRuntime().availableProcessors();
+		try {
+			cmd = parser.parse(options, argv);
+			if (cmd.hasOption("w")) {
+				workers = Integer.parseInt(cmd.getOptionValue("w"));
+				if (workers < 1) {
+					throw new org.apache.commons.cli.ParseException("Number of workers must be positive!");
+				}
+			}
+		} catch (org.apache.commons.cli.ParseException | NumberFormatException pe) {
+			LOGGER.error(pe.getMessage());
+			formatter.printHelp(BatchConverter.class.getCanonicalName(), options);
+			System.exit(1);
+		}
+
+		final PropertiesManager pm = new PropertiesManager();
+		if (cmd.hasOption("f")) {
+			pm.personalIbansFile(cmd.getOptionValue("f"));
+		}
+		final FileConverter converter = new FileConverter(
+				pm,
+				cmd.getOptionValue("n"),
+				cmd.getOptionValue("i"),
+				cmd.getOptionValue("a"),
+				cmd.getOptionValue("p"),
+				cmd.hasOption("x"));
+		final BatchConverter batch = new BatchConverter(converter, workers);
+
+		try {
+			final Path outputDirectory;
+			if (cmd.hasOption("o")) {
+				outputDirectory = Paths.get(cmd.getOptionValue("o"));
+				Files.createDirectories(outputDirectory);
+			} else {
+				outputDirectory = null;
+			}
+			final List<Result> results = batch.convert(sources(cmd.getOptionValue("s"), outputDirectory), outputDirectory);
+			final String summary = summary(results);
+			LOGGER.info(summary);
+			System.out.println(summary);
+			if (results.stream().anyMatch(Result::failed)) {
+				System.exit(2);
+			}
+		} catch (IOException | InterruptedException e) {
+			LOGGER.error(e.getMessage());
+			final StringWriter sw = new StringWriter();
+			final PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			LOGGER.error(sw.toString());
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Training run for Class Data Sharing archive: converts small synthetic Revolut statement and
+ * pain.001.001.03 file in memory and streaming, so classes of both converters, JAXB runtime and
+ * generated camt.053.001.02/pain.001.001.03 packages are loaded before JVM exits. Archive is
+ * created by build (mvn -Pcds package) or by launcher with
+ * java -XX:ArchiveClassesAtExit=si-sepa-iso20022.jsa -cp si-sepa-iso20022-1.0.0-standalone.jar solutions.a2.iso20022.si.revolut.CdsTraining
+ */
+public class CdsTraining {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CdsTraining.class);
+
+	private static final int STATEMENT_ROWS = 500;
+	private static final int STATEMENT_ROWS_PER_DAY = 50;
+	private static final int PAYMENTS = 50;
+
+	public static void main(String[] argv) {
+		BasicConfigurator.configure();
+		org.apache.log4j.Logger.getRootLogger().setLevel(Level.WARN);
+		Path directory = null;
+		try {
+			directory = Files.createTempDirectory("si-sepa-cds");
+			final SyntheticData generator = new SyntheticData(SyntheticData.DEFAULT_SEED);
+			final Path statement = directory.resolve("statement.csv");
+			generator.statement(statement, PropertiesManager.TZ,
+					STATEMENT_ROWS, STATEMENT_ROWS_PER_DAY, LocalDate.of(2022, 5, 31));
+			final Path batch = directory.resolve("payments.xml");
+			generator.payments(batch, PAYMENTS, 1);
+			final String output = directory.resolve("output").toString();
+			for (boolean streaming : new boolean[] {false, true}) {
+				final BankToCustomerStatement revolut = new BankToCustomerStatement(
+						PropertiesManager.TZ, PropertiesManager.CURRENCY_CODE, statement.toString(), streaming);
+				revolut.write(
+						PropertiesManager.PARTY_COUNTRY, "Glavni Trg 4 Maribor 2000", "",
+						"A2 Rešitve digitalne storitve d.o.o.", PropertiesManager.BRANCH_COUNTRY,
+						PropertiesManager.BIC, PropertiesManager.BRANCH, "LT601010012345678901",
+						output + ".xml");
+				final CreditTransferInitiation cti = new CreditTransferInitiation(batch.toString(), streaming);
+				cti.write(output + ".csv", RecipientRegistry.EMPTY);
+			}
+		} catch (IOException | JAXBException e) {
+			LOGGER.error(e.getMessage());
+			final StringWriter sw = new StringWriter();
+			final PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			LOGGER.error(sw.toString());
+			System.exit(1);
+		} finally {
+			if (directory != null) {
+				try (Stream<Path> files = Files.list(directory)) {
+					for (Path file : (Iterable<Path>) files::iterator) {
+						Files.delete(file);
+					}
+					Files.delete(directory);
+				} catch (IOException ioe) {
+					LOGGER.warn("Unable to delete {}: {}", directory, ioe.getMessage());
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,414 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Conversion counters and per-phase timers of BankToCustomerStatement ("statement"),
+ * CreditTransferInitiation ("payments") and RevolutStatement ("reverse"). Values are updated
+ * once per phase or conversion, never per row. Metrics are published as platform MBeans and,
+ * when JVM argument -Da2.metrics.textfile is set, written to that file in Prometheus text format
+ * (for node-exporter textfile collector). File is written by background thread at most once per
+ * second after conversions, not by converting thread, and once more when JVM exits.
+ */
+public class ConversionMetrics implements ConversionMetricsMBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConversionMetrics.class);
+
+	public static final String TEXTFILE_PROPERTY = "a2.metrics.textfile";
+
+	public enum Phase {
+		/** Read and parse of source file */
+		READ,
+		/** Build of JAXB model */
+		BUILD,
+		/** Marshal or print of converted rows */
+		WRITE,
+		/** Flush and close of output */
+		FLUSH
+	}
+
+	private static final ConversionMetrics STATEMENT = new ConversionMetrics("statement");
+	private static final ConversionMetrics PAYMENTS = new ConversionMetrics("payments");
+	private static final ConversionMetrics REVERSE = new ConversionMetrics("reverse");
+
+	private static final long PUBLISH_DELAY_MILLIS = 1000;
+	private static final AtomicBoolean PUBLISH_PENDING = new AtomicBoolean(false);
+	private static ScheduledExecutorService publisher;
+
+	static {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ConversionMetrics metrics : new ConversionMetrics[] {STATEMENT, PAYMENTS, REVERSE}) {
+			try {
+				final ObjectName name = new ObjectName(
+						"solutions.a2.iso20022:type=ConversionMetrics,name=" + metrics.converter);
+				if (!server.isRegistered(name)) {
+					server.registerMBean(metrics, name);
+				}
+			} catch (JMException jme) {
+				LOGGER.warn("Unable to register MBean for {} metrics: {}", metrics.converter, jme.getMessage());
+			}
+		}
+	}
+
+	private final String converter;
+	private final LongAdder conversions = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder rowsProcessed = new LongAdder();
+	private final LongAdder rowsRejected = new LongAdder();
+	private final LongAdder bytesIn = new LongAdder();
+	private final LongAdder bytesOut = new LongAdder();
+	private final LongAdder[] phaseCount;
+	private final LongAdder[] phaseNanos;
+	private final LongAccumulator[] phaseMaxNanos;
+
+	private ConversionMetrics(final String converter) {
+		this.converter = converter;
+		final int phases = Phase.values().length;
+		phaseCount = new LongAdder[phases];
+		phaseNanos = new LongAdder[phases];
+		phaseMaxNanos = new LongAccumulator[phases];
+		for (int i = 0; i < phases; i++) {
+			phaseCount[i] = new LongAdder();
+			phaseNanos[i] = new LongAdder();
+			phaseMaxNanos[i] = new LongAccumulator(Math::max, 0);
+		}
+	}
+
+	/**
+	 * @return metrics of Revolut statement to camt.053.001.02 conversion
+	 */
+	public static ConversionMetrics statement() {
+		return STATEMENT;
+	}
+
+	/**
+	 * @return metrics of pain.001.001.03 to Revolut bulk payment conversion
+	 */
+	public static ConversionMetrics payments() {
+		return PAYMENTS;
+	}
+
+	/**
+	 * @return metrics of camt.053.001.02 to Revolut statement conversion
+	 */
+	public static ConversionMetrics reverse() {
+		return REVERSE;
+	}
+
+	/**
+	 * Records phase which started at startedNanos (as returned by System.nanoTime())
+	 *
+	 * @return current System.nanoTime(), start of next phase
+	 */
+	public long phase(final Phase phase, final long startedNanos) {
+		final long now = System.nanoTime();
+		phaseNanos(phase, now - startedNanos);
+		return now;
+	}
+
+	public void phaseNanos(final Phase phase, final long nanos) {
+		phaseCount[phase.ordinal()].increment();
+		phaseNanos[phase.ordinal()].add(nanos);
+		phaseMaxNanos[phase.ordinal()].accumulate(nanos);
+	}
+
+	public void rows(final long rows) {
+		rowsProcessed.add(rows);
+	}
+
+	public void rejected(final long rows) {
+		rowsRejected.add(rows);
+	}
+
+	public void bytesIn(final long bytes) {
+		bytesIn.add(bytes);
+	}
+
+	public void bytesOut(final long bytes) {
+		bytesOut.add(bytes);
+	}
+
+	/**
+	 * Counts successful conversion and schedules publishing of metrics to Prometheus text file
+	 */
+	public void converted() {
+		conversions.increment();
+		schedulePublish();
+	}
+
+	/**
+	 * Counts failed conversion and schedules publishing of metrics to Prometheus text file
+	 */
+	public void failed() {
+		failures.increment();
+		schedulePublish();
+	}
+
+	/**
+	 * Size of file or 0 when it does not exist
+	 */
+	static long size(final String fileName) {
+		try {
+			return Files.size(Paths.get(fileName));
+		} catch (IOException ioe) {
+			return 0;
+		}
+	}
+
+	@Override
+	public long getConversions() {
+		return conversions.sum();
+	}
+
+	@Override
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	@Override
+	public long getRowsProcessed() {
+		return rowsProcessed.sum();
+	}
+
+	@Override
+	public long getRowsRejected() {
+		return rowsRejected.sum();
+	}
+
+	@Override
+	public long getBytesIn() {
+		return bytesIn.sum();
+	}
+
+	@Override
+	public long getBytesOut() {
+		return bytesOut.sum();
+	}
+
+	@Override
+	public long getReadCount() {
+		return phaseCount[Phase.READ.ordinal()].sum();
+	}
+
+	@Override
+	public long getReadMillis() {
+		return millis(phaseNanos[Phase.READ.ordinal()].sum());
+	}
+
+	@Override
+	public long getReadMaxMillis() {
+		return millis(phaseMaxNanos[Phase.READ.ordinal()].get());
+	}
+
+	@Override
+	public long getBuildCount() {
+		return phaseCount[Phase.BUILD.ordinal()].sum();
+	}
+
+	@Override
+	public long getBuildMillis() {
+		return millis(phaseNanos[Phase.BUILD.ordinal()].sum());
+	}
+
+	@Override
+	public long getBuildMaxMillis() {
+		return millis(phaseMaxNanos[Phase.BUILD.ordinal()].get());
+	}
+
+	@Override
+	public long getWriteCount() {
+		return phaseCount[Phase.WRITE.ordinal()].sum();
+	}
+
+	@Override
+	public long getWriteMillis() {
+		return millis(phaseNanos[Phase.WRITE.ordinal()].sum());
+	}
+
+	@Override
+	public long getWriteMaxMillis() {
+		return millis(phaseMaxNanos[Phase.WRITE.ordinal()].get());
+	}
+
+	@Override
+	public long getFlushCount() {
+		return phaseCount[Phase.FLUSH.ordinal()].sum();
+	}
+
+	@Override
+	public long getFlushMillis() {
+		return millis(phaseNanos[Phase.FLUSH.ordinal()].sum());
+	}
+
+	@Override
+	public long getFlushMaxMillis() {
+		return millis(phaseMaxNanos[Phase.FLUSH.ordinal()].get());
+	}
+
+	@Override
+	public void reset() {
+		conversions.reset();
+		failures.reset();
+		rowsProcessed.reset();
+		rowsRejected.reset();
+		bytesIn.reset();
+		bytesOut.reset();
+		for (int i = 0; i < phaseCount.length; i++) {
+			phaseCount[i].reset();
+			phaseNanos[i].reset();
+			phaseMaxNanos[i].reset();
+		}
+	}
+
+	private static long millis(final long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * Conversions which end within PUBLISH_DELAY_MILLIS are published with one write
+	 */
+	private static void schedulePublish() {
+		if (StringUtils.isBlank(System.getProperty(TEXTFILE_PROPERTY))) {
+			return;
+		}
+		if (PUBLISH_PENDING.compareAndSet(false, true)) {
+			publisher().schedule(() -> {
+				PUBLISH_PENDING.set(false);
+				publish();
+			}, PUBLISH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static synchronized ScheduledExecutorService publisher() {
+		if (publisher == null) {
+			publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "metrics-publisher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			// Short-lived command line conversion exits before delay ends
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				if (PUBLISH_PENDING.getAndSet(false)) {
+					publish();
+				}
+			}, "metrics-publisher-shutdown"));
+		}
+		return publisher;
+	}
+
+	/**
+	 * Writes metrics of all converters to file set by -Da2.metrics.textfile, file is
+	 * replaced atomically so collector never reads partially written file
+	 */
+	public static synchronized void publish() {
+		final String textfile = System.getProperty(TEXTFILE_PROPERTY);
+		if (StringUtils.isBlank(textfile)) {
+			return;
+		}
+		final Path path = Paths.get(textfile);
+		final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				writePrometheus(writer);
+			}
+			try {
+				Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException amnse) {
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException ioe) {
+			LOGGER.warn("Unable to write metrics to {}: {}", textfile, ioe.getMessage());
+		}
+	}
+
+	/**
+	 * Writes metrics of all converters in Prometheus text exposition format
+	 */
+	public static void writePrometheus(final Writer writer) throws IOException {
+		final ConversionMetrics[] all = {STATEMENT, PAYMENTS, REVERSE};
+		counter(writer, "si_sepa_conversions_total", "Successful conversions.", all, ConversionMetrics::getConversions);
+		counter(writer, "si_sepa_conversion_failures_total", "Failed conversions.", all, ConversionMetrics::getFailures);
+		counter(writer, "si_sepa_rows_processed_total", "Rows converted.", all, ConversionMetrics::getRowsProcessed);
+		counter(writer, "si_sepa_rows_rejected_total", "Rows rejected.", all, ConversionMetrics::getRowsRejected);
+		counter(writer, "si_sepa_bytes_read_total", "Bytes of source files.", all, ConversionMetrics::getBytesIn);
+		counter(writer, "si_sepa_bytes_written_total", "Bytes of converted files.", all, ConversionMetrics::getBytesOut);
+
+		writer.write("# HELP si_sepa_phase_seconds Time spent in conversion phase.\n");
+		writer.write("# TYPE si_sepa_phase_seconds summary\n");
+		for (ConversionMetrics metrics : all) {
+			for (Phase phase : Phase.values()) {
+				final String labels = metrics.labels(phase);
+				writer.write("si_sepa_phase_seconds_sum" + labels + " " +
+						seconds(metrics.phaseNanos[phase.ordinal()].sum()) + "\n");
+				writer.write("si_sepa_phase_seconds_count" + labels + " " +
+						metrics.phaseCount[phase.ordinal()].sum() + "\n");
+			}
+		}
+		writer.write("# HELP si_sepa_phase_seconds_max Longest conversion phase.\n");
+		writer.write("# TYPE si_sepa_phase_seconds_max gauge\n");
+		for (ConversionMetrics metrics : all) {
+			for (Phase phase : Phase.values()) {
+				writer.write("si_sepa_phase_seconds_max" + metrics.labels(phase) + " " +
+						seconds(metrics.phaseMaxNanos[phase.ordinal()].get()) + "\n");
+			}
+		}
+	}
+
+	private interface Value {
+		long get(ConversionMetrics metrics);
+	}
+
+	private static void counter(final Writer writer, final String name, final String help,
+			final ConversionMetrics[] all, final Value value) throws IOException {
+		writer.write("# HELP " + name + " " + help + "\n");
+		writer.write("# TYPE " + name + " counter\n");
+		for (ConversionMetrics metrics : all) {
+			writer.write(name + "{converter=\"" + metrics.converter + "\"} " + value.get(metrics) + "\n");
+		}
+	}
+
+	private String labels(final Phase phase) {
+		return "{converter=\"" + converter + "\",phase=\"" + phase.name().toLowerCase(Locale.ROOT) + "\"}";
+	}
+
+	private static String seconds(final long nanos) {
+		return Double.toString(nanos / 1e9);
+	}
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+/**
+ * JMX view of {@link ConversionMetrics}, registered as
+ * solutions.a2.iso20022:type=ConversionMetrics,name=statement|payments|reverse
+ */
+public interface ConversionMetricsMBean {
+
+	long getConversions();
+	long getFailures();
+	long getRowsProcessed();
+	long getRowsRejected();
+	long getBytesIn();
+	long getBytesOut();
+
+	long getReadCount();
+	long getReadMillis();
+	long getReadMaxMillis();
+	long getBuildCount();
+	long getBuildMillis();
+	long getBuildMaxMillis();
+	long getWriteCount();
+	long getWriteMillis();
+	long getWriteMaxMillis();
+	long getFlushCount();
+	long getFlushMillis();
+	long getFlushMaxMillis();
+
+	void reset();
+
+}
@@ -0,0 +1,452 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.PropertyConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Conversion service on JDK HttpServer, JVM and JAXB contexts are started once and shared
+ * by all requests. Endpoints:
+ * <pre>
+ * POST /camt053 - Revolut statement (csv) in request body, camt.053.001.02 in response
+ * POST /revolut - pain.001.001.03 in request body, Revolut bulk payment csv in response
+ * GET  /metrics - conversion metrics in Prometheus text format
+ * GET  /health  - liveness check
+ * </pre>
+ * Party information can be overridden with query parameters name, iban, address and
+ * personal-ibans. Every request runs in own (virtual, when available) thread, number of
+ * concurrent conversions and request size are limited. Request body and converted file are
+ * spooled to temporary files (java.io.tmpdir, readable by owner only) which are deleted when
+ * response is sent, so conversion errors are reported with status 422 and response has
+ * Content-Length. Response header Server-Timing contains upload, convert and total time of
+ * request. Server has no authentication and listens on loopback address unless other
+ * address is set.
+ */
+public class ConversionServer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConversionServer.class);
+
+	public static final int DEFAULT_PORT = 8080;
+	public static final long DEFAULT_MAX_REQUEST_BYTES = 64L * 1024 * 1024;
+	private static final long PERMIT_WAIT_MILLIS = 1_000;
+	private static final int STOP_DELAY_SECONDS = 5;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final PropertiesManager pm;
+	private final FileConverter defaultConverter;
+	private final boolean streaming;
+	private final long maxRequestBytes;
+	private final Semaphore permits;
+
+	/**
+	 *
+	 * @param address         - address and port to listen on
+	 * @param converter       - converter with default party information
+	 * @param pm              - stored party information for requests with query parameters
+	 * @param streaming       - convert files without building whole document in memory
+	 * @param maxConcurrent   - maximum number of concurrent conversions
+	 * @param maxRequestBytes - maximum size of request body
+	 * @throws IOException
+	 */
+	public ConversionServer(
+			final InetSocketAddress address,
+			final FileConverter converter,
+			final PropertiesManager pm,
+			final boolean streaming,
+			final int maxConcurrent,
+			final long maxRequestBytes) throws IOException {
+		this.defaultConverter = converter;
+		this.pm = pm;
+		this.streaming = streaming;
+		this.maxRequestBytes = maxRequestBytes;
+		this.permits = new Semaphore(maxConcurrent);
+		this.executor = newThreadPerTaskExecutor();
+		this.server = HttpServer.create(address, 0);
+		server.createContext("/camt053", exchange -> convert(exchange, true));
+		server.createContext("/revolut", exchange -> convert(exchange, false));
+		server.createContext("/metrics", this::metrics);
+		server.createContext("/health", this::health);
+		server.setExecutor(executor);
+	}
+
+	/**
+	 * Project is compiled for Java 11, Executors.newVirtualThreadPerTaskExecutor() is called
+	 * reflectively when running on Java 21+
+	 *
+	 * @return virtual-thread-per-task executor or cached thread pool
+	 */
+	private static ExecutorService newThreadPerTaskExecutor() {
+		try {
+			final ExecutorService executor = (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+			LOGGER.info("Using virtual thread per task executor.");
+			return executor;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.info("Virtual threads are not available, using thread per task executor.");
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	public void start() {
+		server.start();
+		LOGGER.info("Conversion server listening on {}.", server.getAddress());
+		final InetAddress address = server.getAddress().getAddress();
+		if (!address.isLoopbackAddress()) {
+			LOGGER.warn("Conversion server has no authentication and is reachable from other hosts on {}!", address);
+		}
+	}
+
+	public void stop() {
+		server.stop(STOP_DELAY_SECONDS);
+		executor.shutdown();
+		LOGGER.info("Conversion server stopped.");
+	}
+
+	public InetSocketAddress address() {
+		return server.getAddress();
+	}
+
+	private void convert(final HttpExchange exchange, final boolean statement) throws IOException {
+		final long started = System.nanoTime();
+		try {
+			if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				error(exchange, 405, "Only POST is supported.");
+				return;
+			}
+			final String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+			if (contentLength != null && Long.parseLong(contentLength) > maxRequestBytes) {
+				error(exchange, 413, "Request body exceeds " + maxRequestBytes + " bytes.");
+				return;
+			}
+			if (!permits.tryAcquire(PERMIT_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				error(exchange, 503, "Too many concurrent conversions.");
+				return;
+			}
+			try {
+				convert(exchange, statement, started);
+			} finally {
+				permits.release();
+			}
+		} catch (NumberFormatException nfe) {
+			error(exchange, 400, "Wrong Content-Length header.");
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			error(exchange, 503, "Server is shutting down.");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void convert(final HttpExchange exchange, final boolean statement, final long started)
+			throws IOException {
+		final Path source = Files.createTempFile("si-sepa-", statement ? ".csv" : ".xml");
+		final Path output = Files.createTempFile("si-sepa-", statement ? ".xml" : ".csv");
+		try {
+			try (InputStream is = exchange.getRequestBody();
+					OutputStream os = Files.newOutputStream(source)) {
+				if (!copy(is, os, maxRequestBytes)) {
+					error(exchange, 413, "Request body exceeds " + maxRequestBytes + " bytes.");
+					return;
+				}
+			}
+			final long uploaded = System.nanoTime();
+			try {
+				converter(exchange).convert(source, output);
+			} catch (IOException | JAXBException | RuntimeException e) {
+				LOGGER.error("Unable to convert request from {}: {}", exchange.getRemoteAddress(), e.getMessage());
+				final StringWriter sw = new StringWriter();
+				final PrintWriter pw = new PrintWriter(sw);
+				e.printStackTrace(pw);
+				LOGGER.error(sw.toString());
+				error(exchange, 422, "Unable to convert: " +
+						StringUtils.defaultString(e.getMessage(), e.getClass().getName()));
+				return;
+			}
+			final long converted = System.nanoTime();
+			exchange.getResponseHeaders().set("Content-Type",
+					statement ? "application/xml; charset=UTF-8" : "text/csv; charset=UTF-8");
+			exchange.getResponseHeaders().set("Server-Timing",
+					"upload;dur=" + millis(uploaded - started) +
+					", convert;dur=" + millis(converted - uploaded) +
+					", total;dur=" + millis(System.nanoTime() - started));
+			exchange.sendResponseHeaders(200, Files.size(output));
+			try (OutputStream os = exchange.getResponseBody()) {
+				Files.copy(output, os);
+			}
+		} finally {
+			Files.deleteIfExists(source);
+			Files.deleteIfExists(output);
+		}
+	}
+
+	/**
+	 * Converter for party information passed in query, default converter when query is empty
+	 */
+	private FileConverter converter(final HttpExchange exchange) {
+		final Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+		if (query.isEmpty()) {
+			return defaultConverter;
+		} else {
+			return new FileConverter(pm,
+					query.get("name"), query.get("iban"), query.get("address"), query.get("personal-ibans"),
+					streaming);
+		}
+	}
+
+	private void metrics(final HttpExchange exchange) throws IOException {
+		try {
+			final StringWriter sw = new StringWriter();
+			ConversionMetrics.writePrometheus(sw);
+			final byte[] body = sw.toString().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=UTF-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void health(final HttpExchange exchange) throws IOException {
+		try {
+			final byte[] body = ("OK, available conversion slots: " + permits.availablePermits() + "\n")
+					.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @return false when more than limit bytes are available in input stream
+	 */
+	private static boolean copy(final InputStream is, final OutputStream os, final long limit) throws IOException {
+		final byte[] buffer = new byte[0x10000];
+		long total = 0;
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			total += read;
+			if (total > limit) {
+				return false;
+			}
+			os.write(buffer, 0, read);
+		}
+		return true;
+	}
+
+	private static void error(final HttpExchange exchange, final int status, final String message) throws IOException {
+		final byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	private static Map<String, String> query(final String rawQuery) {
+		final Map<String, String> query = new HashMap<>();
+		if (StringUtils.isNotBlank(rawQuery)) {
+			for (String pair : StringUtils.split(rawQuery, '&')) {
+				final int eq = pair.indexOf('=');
+				if (eq > 0) {
+					query.put(
+							URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8).toLowerCase(Locale.ROOT),
+							URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return query;
+	}
+
+	private static String millis(final long nanos) {
+		return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+	}
+
+	public static void main(String[] argv) {
+		// Check for valid log4j configuration
+		final String log4jConfig = System.getProperty("a2.log4j.configuration");
+		if (log4jConfig == null || "".equals(log4jConfig)) {
+			BasicConfigurator.configure();
+			LOGGER.warn("JVM argument -Da2.log4j.configuration not set!");
+		} else {
+			// Check that log4j configuration file exist
+			Path path = Paths.get(log4jConfig);
+			if (!Files.exists(path) || Files.isDirectory(path)) {
+				BasicConfigurator.configure();
+				LOGGER.error("JVM argument -Da2.log4j.configuration points to unknown file {}.", log4jConfig);
+			} else {
+				// Initialize log4j
+				PropertyConfigurator.configure(log4jConfig);
+			}
+		}
+
+		final Options options = new Options();
+
+		final Option optionPort = new Option("P", "port", true,
+				"Port to listen on, default - " + DEFAULT_PORT + ".");
+		optionPort.setRequired(false);
+		options.addOption(optionPort);
+
+		final Option optionBind = new Option("b", "bind-address", true,
+				"Address to listen on, default - loopback address, use 0.0.0.0 for all addresses.");
+		optionBind.setRequired(false);
+		options.addOption(optionBind);
+
+		final Option optionConcurrent = new Option("c", "max-concurrent", true,
+				"Maximum number of concurrent conversions, default - number of available processors.");
+		optionConcurrent.setRequired(false);
+		options.addOption(optionConcurrent);
+
+		final Option optionRequestSize = new Option("l", "max-request-size", true,
+				"Maximum size of request body in bytes, default - " + DEFAULT_MAX_REQUEST_BYTES + ".");
+		optionRequestSize.setRequired(false);
+		options.addOption(optionRequestSize);
+
+		final Option optionPartyAddress = new Option("a", "party-address", true,
+				"Party address, when not set value from Setup is used.");
+		optionPartyAddress.setRequired(false);
+		options.addOption(optionPartyAddress);
+
+		final Option optionPartyName = new Option("n", "party-name", true,
+				"Party name, when not set value from Setup is used.");
+		optionPartyName.setRequired(false);
+		options.addOption(optionPartyName);
+
+		final Option optionIban = new Option("i", "iban", true,
+				"Statement IBAN, when not set value from Setup is used.");
+		optionIban.setRequired(false);
+		options.addOption(optionIban);
+
+		final Option optionPersonalIbans = new Option("p", "personal-ibans", true,
+				"Comma separated list of personal IBAN's, when not set value from Setup is used.");
+		optionPersonalIbans.setRequired(false);
+		options.addOption(optionPersonalIbans);
+
+		final Option optionPersonalIbansFile = new Option("f", "personal-ibans-file", true,
+				"File with personal IBAN's, reloaded when changed. Used when personal IBAN's are not set.");
+		optionPersonalIbansFile.setRequired(false);
+		options.addOption(optionPersonalIbansFile);
+
+		final Option optionStreaming = new Option("x", "streaming", false,
+				"Convert files without building whole document in memory.");
+		optionStreaming.setRequired(false);
+		options.addOption(optionStreaming);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cmd = null;
+		int port = DEFAULT_PORT;
+		int maxConcurrent = Runtime.getRuntime().availableProcessors();
+		long maxRequestBytes = DEFAULT_MAX_REQUEST_BYTES;
+		try {
+			cmd = parser.parse(options, argv);
+			if (cmd.hasOption("P")) {
+				port = Integer.parseInt(cmd.getOptionValue("P"));
+			}
+			if (cmd.hasOption("c")) {
+				maxConcurrent = Integer.parseInt(cmd.getOptionValue("c"));
+			}
+			if (cmd.hasOption("l")) {
+				maxRequestBytes = Long.parseLong(cmd.getOptionValue("l"));
+			}
+			if (maxConcurrent < 1 || maxRequestBytes < 1) {
+				throw new org.apache.commons.cli.ParseException("Concurrency and request size limits must be positive!");
+			}
+		} catch (org.apache.commons.cli.ParseException | NumberFormatException pe) {
+			LOGGER.error(pe.getMessage());
+			formatter.printHelp(ConversionServer.class.getCanonicalName(), options);
+			System.exit(1);
+		}
+
+		final PropertiesManager pm = new PropertiesManager();
+		if (cmd.hasOption("f")) {
+			pm.personalIbansFile(cmd.getOptionValue("f"));
+		}
+		final FileConverter converter = new FileConverter(
+				pm,
+				cmd.getOptionValue("n"),
+				cmd.getOptionValue("i"),
+				cmd.getOptionValue("a"),
+				cmd.getOptionValue("p"),
+				cmd.hasOption("x"));
+		try {
+			// Build JAXB contexts before first request
+			JaxbContexts.camt053().context();
+			JaxbContexts.pain001().context();
+		} catch (JAXBException e) {
+			LOGGER.error("Unable to create JAXBContext: {}", e.getMessage());
+		}
+		try {
+			final InetSocketAddress address = cmd.hasOption("b") ?
+					new InetSocketAddress(cmd.getOptionValue("b"), port) :
+					new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+			final ConversionServer server = new ConversionServer(
+					address, converter, pm, cmd.hasOption("x"), maxConcurrent, maxRequestBytes);
+			Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+			server.start();
+		} catch (IOException e) {
+			LOGGER.error(e.getMessage());
+			final StringWriter sw = new StringWriter();
+			final PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			LOGGER.error(sw.toString());
+			System.exit(1);
+		}
+	}
+
+}
@@ -13,23 +13,28 @@
 
 package solutions.a2.iso20022.si.revolut;
 
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
-import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.UnmarshalException;
 import jakarta.xml.bind.Unmarshaller;
+import jakarta.xml.bind.ValidationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
 
@@ -51,68 +56,353 @@ import solutions.a2.iso20022.pain001.v001_03.CreditTransferTransactionInformatio
 import solutions.a2.iso20022.pain001.v001_03.CustomerCreditTransferInitiationV03;
 import solutions.a2.iso20022.pain001.v001_03.Document;
 import solutions.a2.iso20022.pain001.v001_03.PaymentInstructionInformation3;
+import solutions.a2.iso20022.pain001.v001_03.RemittanceInformation5;
 import solutions.a2.iso20022.pain001.v001_03.StructuredRemittanceInformation7;
+import solutions.a2.iso20022.si.revolut.ConversionMetrics.Phase;
 
 public class CreditTransferInitiation {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(CreditTransferInitiation.class);
 
+	private static final String PAIN001_NS = "urn:iso:std:iso:20022:tech:xsd:pain.001.001.03";
+	private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+			.setHeader(
+					"Name",
+					"Recipient type",
+					"IBAN",
+					"BIC",
+					"Recipient bank country",
+					"Currency",
+					"Amount",
+					"Payment reference")
+			.build();
+
+	private final String fileName;
+	private final boolean validate;
 	private final CustomerCreditTransferInitiationV03 ccti;
+	private final ConversionMetrics metrics = ConversionMetrics.payments();
+	private OutputSink sink = OutputSink.DEFAULT;
+	private int chunkRows = 0;
+	private BigDecimal chunkAmount = null;
+	private int chunkParallelism = 1;
+
+	/**
+	 * Destination of Revolut bulk payment rows: single csv or {@link PaymentChunks}
+	 */
+	interface TransferSink {
+		void add(Object[] record, String currency, BigDecimal amount) throws IOException;
+	}
 
 	public CreditTransferInitiation(final String fileName) throws IOException, JAXBException {
-		final JAXBContext jaxbContext = JAXBContext.newInstance("solutions.a2.iso20022.pain001.v001_03");
-		final Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-		final Source source = new StreamSource(new FileInputStream(fileName));
-		final JAXBElement<Document> jaxbElement = unmarshaller.unmarshal(source, Document.class);
-		ccti = jaxbElement.getValue().getCstmrCdtTrfInitn();
+		this(fileName, false);
+	}
+
+	/**
+	 * 
+	 * @param fileName  - pain.001.001.03 file
+	 * @param streaming - when true document is not unmarshalled in constructor, write() walks
+	 *                    file with StAX and unmarshals one CdtTrfTxInf at a time
+	 * @throws IOException
+	 * @throws JAXBException
+	 */
+	public CreditTransferInitiation(final String fileName, final boolean streaming) throws IOException, JAXBException {
+		this(fileName, streaming, false);
+	}
+
+	/**
+	 * 
+	 * @param validate - validate pain.001.001.03 against XSD while it is unmarshalled (or streamed
+	 *                   in write()) and check creditor IBAN and BIC in write(), invalid document
+	 *                   is rejected with ValidationException which lists errors with line and column
+	 * @throws IOException
+	 * @throws JAXBException
+	 */
+	public CreditTransferInitiation(final String fileName, final boolean streaming, final boolean validate)
+			throws IOException, JAXBException {
+		this.fileName = fileName;
+		this.validate = validate;
+		if (streaming) {
+			ccti = null;
+			return;
+		}
+		final long started = System.nanoTime();
+		final ValidationErrors errors = validate ? new ValidationErrors(fileName) : null;
+		final Unmarshaller unmarshaller = validate ?
+				JaxbContexts.pain001().borrowUnmarshaller(errors) :
+				JaxbContexts.pain001().borrowUnmarshaller();
+		try (InputStream is = new FileInputStream(fileName)) {
+			final Source source = new StreamSource(is);
+			final JAXBElement<Document> jaxbElement;
+			try {
+				jaxbElement = unmarshaller.unmarshal(source, Document.class);
+			} catch (UnmarshalException ue) {
+				// Unmarshaller stops at first validation error, report it with collected errors
+				if (errors != null) {
+					errors.check();
+				}
+				throw ue;
+			}
+			if (errors != null) {
+				errors.check();
+			}
+			ccti = jaxbElement.getValue().getCstmrCdtTrfInitn();
+		} catch (ValidationException ve) {
+			metrics.rejected(1);
+			metrics.failed();
+			throw ve;
+		} catch (IOException | JAXBException e) {
+			metrics.failed();
+			throw e;
+		} finally {
+			JaxbContexts.pain001().release(unmarshaller);
+		}
 		if (ccti == null) {
+			metrics.failed();
 			throw new JAXBException("Wrong pain001.v001.03 format!!!");
 		}
+		metrics.phase(Phase.READ, started);
+		metrics.bytesIn(ConversionMetrics.size(fileName));
 	}
 
-	public void write(final String fileName, List<String> personalIbanList) throws IOException, JAXBException {
-		final Set<String> personalIbans = new HashSet<>();
-		if (personalIbanList != null) {
-			personalIbanList.forEach(iban -> 
-				personalIbans.add(StringUtils.upperCase(iban)));
+	/**
+	 * Configures output of write(), csv is always written in UTF-8
+	 */
+	public void sink(final OutputSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Splits output of write() to chunks, see {@link PaymentChunks}
+	 * 
+	 * @param maxRows     - maximal number of rows in chunk, 0 - no limit
+	 * @param maxAmount   - maximal total amount of every currency in chunk, null - no limit
+	 * @param parallelism - maximal number of chunks written concurrently
+	 */
+	public void chunks(final int maxRows, final BigDecimal maxAmount, final int parallelism) {
+		if (maxRows < 0 || (maxAmount != null && maxAmount.signum() <= 0) || parallelism < 1) {
+			throw new IllegalArgumentException("Chunk limits and parallelism must be positive!");
 		}
-		final FileWriter fileWriter = new FileWriter(fileName);
-		final CSVFormat format = CSVFormat.DEFAULT.builder()
-				.setHeader(
-						"Name",
-						"Recipient type",
-						"IBAN",
-						"BIC",
-						"Recipient bank country",
-						"Currency",
-						"Amount",
-						"Payment reference")
-				.build();
-		final CSVPrinter printer = new CSVPrinter(fileWriter, format);
-
-		for (PaymentInstructionInformation3 pii : ccti.getPmtInf()) {
-			CreditTransferTransactionInformation10 ctti = pii.getCdtTrfTxInf().get(0);
-			final String iban = StringUtils.upperCase(ctti.getCdtrAcct().getId().getIBAN());
-			final StructuredRemittanceInformation7 sri = ctti.getRmtInf().getStrd().get(0);
-			final String recipientType;
-			if (personalIbans.contains(iban)) {
-				recipientType = "Individual";
+		this.chunkRows = maxRows;
+		this.chunkAmount = maxAmount;
+		this.chunkParallelism = parallelism;
+	}
+
+	public void write(final String fileName, List<String> personalIbanList) throws IOException, JAXBException {
+		write(fileName, RecipientRegistry.of(personalIbanList));
+	}
+
+	/**
+	 * 
+	 * @param fileName      - Revolut bulk payment csv file, with chunks configured name of
+	 *                        chunks and manifest is derived from it
+	 * @param personalIbans - IBAN's of individuals, registry can be shared between conversions
+	 * @throws IOException
+	 * @throws JAXBException
+	 */
+	public void write(final String fileName, final RecipientRegistry personalIbans) throws IOException, JAXBException {
+		try {
+			final long rows;
+			if (chunkRows > 0 || chunkAmount != null) {
+				try (PaymentChunks chunks = new PaymentChunks(
+						fileName, CSV_FORMAT, sink, chunkRows, chunkAmount, chunkParallelism)) {
+					rows = convert(chunks, personalIbans);
+					final long flushStarted = System.nanoTime();
+					chunks.commit();
+					metrics.phase(Phase.FLUSH, flushStarted);
+					metrics.bytesOut(chunks.bytes());
+				}
 			} else {
-				recipientType = "Company";
-			}
-			printer.printRecord(
-					ctti.getCdtr().getNm(),						//Name
-					recipientType,								//Recipient type
-					iban,										//IBAN
-					ctti.getCdtrAgt().getFinInstnId().getBIC(),	//BIC
-					iban.substring(0, 2),						//Recipient bank country
-					ctti.getAmt().getInstdAmt().getCcy(),		//Currency
-					ctti.getAmt().getInstdAmt().getValue(),		//Amount
-					sri.getCdtrRefInf().getRef()				//Payment reference
-			);
+				try (OutputSink.Output output = sink.open(fileName)) {
+					final CSVPrinter printer = new CSVPrinter(
+							new OutputStreamWriter(output.stream(), StandardCharsets.UTF_8), CSV_FORMAT);
+					rows = convert((record, currency, amount) -> printer.printRecord(record), personalIbans);
+					final long flushStarted = System.nanoTime();
+					printer.close();
+					output.commit();
+					metrics.phase(Phase.FLUSH, flushStarted);
+					metrics.bytesOut(output.bytes());
+				}
+			}
+			metrics.rows(rows);
+			metrics.converted();
+		} catch (ValidationException ve) {
+			metrics.rejected(1);
+			metrics.failed();
+			throw ve;
+		} catch (IOException | JAXBException e) {
+			metrics.failed();
+			throw e;
+		} catch (RuntimeException re) {
+			// Required element of payment instruction is missing
+			metrics.rejected(1);
+			metrics.failed();
+			throw re;
+		}
+	}
+
+	/**
+	 * Sends every CdtTrfTxInf of document unmarshalled in constructor or streamed from file.
+	 * With validation creditor IBAN and BIC of every CdtTrfTxInf are checked while it is
+	 * converted, all invalid accounts are reported before output is committed.
+	 * 
+	 * @return number of credit transfer transactions
+	 */
+	private long convert(final TransferSink rows, final RecipientRegistry personalIbans) throws IOException, JAXBException {
+		final ValidationErrors accounts = validate ? new ValidationErrors(fileName) : null;
+		final long transactions;
+		if (ccti == null) {
+			metrics.bytesIn(ConversionMetrics.size(this.fileName));
+			transactions = streamTransactions(rows, personalIbans, accounts);
+		} else {
+			final long started = System.nanoTime();
+			long count = 0;
+			for (PaymentInstructionInformation3 pii : ccti.getPmtInf()) {
+				for (CreditTransferTransactionInformation10 ctti : pii.getCdtTrfTxInf()) {
+					printTransaction(rows, ctti, personalIbans, accounts);
+					count++;
+				}
+			}
+			metrics.phase(Phase.WRITE, started);
+			transactions = count;
+		}
+		if (accounts != null) {
+			accounts.check();
+		}
+		return transactions;
+	}
+
+	/**
+	 * Prints one Revolut bulk payment row for every CdtTrfTxInf. Revolut transfer requires
+	 * creditor IBAN, CdtTrfTxInf with other account identification (CdtrAcct/Id/Othr) is
+	 * rejected, with validation it is reported with other account errors and skipped.
+	 */
+	private void printTransaction(final TransferSink rows, final CreditTransferTransactionInformation10 ctti,
+			final RecipientRegistry personalIbans, final ValidationErrors accounts) throws IOException {
+		final String endToEndId = ctti.getPmtId().getEndToEndId();
+		final String iban = ctti.getCdtrAcct() == null || ctti.getCdtrAcct().getId() == null ?
+				null : StringUtils.upperCase(ctti.getCdtrAcct().getId().getIBAN());
+		final String bic = ctti.getCdtrAgt() == null ? "" : ctti.getCdtrAgt().getFinInstnId().getBIC();
+		if (accounts != null) {
+			final AccountValidator.Result bicResult = AccountValidator.bic(bic);
+			if (!bicResult.valid() && bicResult != AccountValidator.Result.BLANK) {
+				accounts.error("CdtTrfTxInf " + endToEndId + ": BIC " + bic + " - " + bicResult.description());
+			}
+			final AccountValidator.Result ibanResult = AccountValidator.iban(iban);
+			if (ibanResult == AccountValidator.Result.BLANK) {
+				accounts.error("CdtTrfTxInf " + endToEndId + ": IBAN missing");
+				return;
+			} else if (!ibanResult.valid()) {
+				accounts.error("CdtTrfTxInf " + endToEndId + ": IBAN " + iban + " - " + ibanResult.description());
+				// Output is not committed, row is not needed
+				return;
+			}
+		} else if (StringUtils.isEmpty(iban)) {
+			throw new IOException("CdtTrfTxInf " + endToEndId +
+					": IBAN missing, Revolut transfer requires creditor IBAN!");
+		} else if (iban.length() < 2) {
+			throw new IOException("CdtTrfTxInf " + endToEndId + ": IBAN " + iban + " is too short!");
+		}
+		final String recipientType;
+		if (personalIbans.individual(iban)) {
+			recipientType = "Individual";
+		} else {
+			recipientType = "Company";
+		}
+		final String currency = ctti.getAmt().getInstdAmt().getCcy();
+		final BigDecimal amount = ctti.getAmt().getInstdAmt().getValue();
+		rows.add(new Object[] {
+				ctti.getCdtr().getNm(),						//Name
+				recipientType,								//Recipient type
+				iban,										//IBAN
+				bic,										//BIC
+				iban.substring(0, 2),						//Recipient bank country
+				currency,									//Currency
+				amount,										//Amount
+				paymentReference(ctti.getRmtInf())			//Payment reference
+		}, currency, amount);
+	}
+
+	/**
+	 * @return creditor reference of structured remittance information, when there is no
+	 *         reference unstructured remittance information lines separated by space
+	 */
+	static String paymentReference(final RemittanceInformation5 rmtInf) {
+		if (rmtInf == null) {
+			return "";
+		}
+		for (StructuredRemittanceInformation7 sri : rmtInf.getStrd()) {
+			if (sri.getCdtrRefInf() != null && StringUtils.isNotBlank(sri.getCdtrRefInf().getRef())) {
+				return sri.getCdtrRefInf().getRef();
+			}
+		}
+		return StringUtils.normalizeSpace(StringUtils.join(rmtInf.getUstrd(), ' '));
+	}
+
+	/**
+	 * Walks pain.001.001.03 file with StAX, unmarshals every CdtTrfTxInf element separately
+	 * and sends it to TransferSink, only one CdtTrfTxInf is kept in memory, even when PmtInf
+	 * contains thousands of transactions
+	 * 
+	 * @return number of credit transfer transactions
+	 */
+	private long streamTransactions(
+			final TransferSink rows, final RecipientRegistry personalIbans,
+			final ValidationErrors accounts) throws IOException, JAXBException {
+		// Unmarshaller validates only fragment, whole document is validated by reader
+		final ValidationErrors errors = validate ? new ValidationErrors(fileName) : null;
+		final Unmarshaller unmarshaller = JaxbContexts.pain001().borrowUnmarshaller();
+		final XMLInputFactory xif = XMLInputFactory.newInstance();
+		xif.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		xif.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		long transactions = 0;
+		// Phase times are summed locally and recorded once per file
+		long readNanos = 0;
+		long writeNanos = 0;
+		long started = System.nanoTime();
+		try (InputStream is = new BufferedInputStream(new FileInputStream(fileName))) {
+			final XMLStreamReader reader = validate ?
+					StreamValidation.reader(xif.createXMLStreamReader(is), JaxbContexts.pain001().schema(), errors) :
+					xif.createXMLStreamReader(is);
+			boolean initiation = false;
+			while (reader.hasNext()) {
+				if (reader.isStartElement() && PAIN001_NS.equals(reader.getNamespaceURI())) {
+					if (initiation && "CdtTrfTxInf".equals(reader.getLocalName())) {
+						// After unmarshal reader points to event following CdtTrfTxInf end tag
+						final CreditTransferTransactionInformation10 ctti =
+								unmarshaller.unmarshal(reader, CreditTransferTransactionInformation10.class).getValue();
+						if (errors != null) {
+							// Invalid CdtTrfTxInf is not written
+							errors.check();
+						}
+						final long unmarshalled = System.nanoTime();
+						readNanos += unmarshalled - started;
+						printTransaction(rows, ctti, personalIbans, accounts);
+						started = System.nanoTime();
+						writeNanos += started - unmarshalled;
+						transactions++;
+						continue;
+					} else if ("CstmrCdtTrfInitn".equals(reader.getLocalName())) {
+						initiation = true;
+					}
+				}
+				reader.next();
+			}
+			reader.close();
+			if (errors != null) {
+				errors.check();
+			}
+			if (!initiation) {
+				throw new JAXBException("Wrong pain001.v001.03 format!!!");
+			}
+			readNanos += System.nanoTime() - started;
+			metrics.phaseNanos(Phase.READ, readNanos);
+			metrics.phaseNanos(Phase.WRITE, writeNanos);
+			return transactions;
+		} catch (XMLStreamException xse) {
+			throw new JAXBException(xse);
+		} finally {
+			JaxbContexts.pain001().release(unmarshaller);
 		}
-		printer.close();
-		fileWriter.close();
 	}
 
 	public static void main(String[] argv) {
@@ -142,25 +432,90 @@ public class CreditTransferInitiation {
 
 		final Option optionIban = new Option("i", "personal-ibans", true,
 				"Comma separated list of IBAN's");
-		optionIban.setRequired(true);
+		optionIban.setRequired(false);
 		options.addOption(optionIban);
 
+		final Option optionIbanFile = new Option("f", "personal-ibans-file", true,
+				"File with IBAN's of individuals, comma separated or one per line, # starts comment. Used when -i is not set.");
+		optionIbanFile.setRequired(false);
+		options.addOption(optionIbanFile);
+
+		final Option optionStreaming = new Option("x", "streaming", false,
+				"Do not load whole document in memory, convert credit transfers one by one.");
+		optionStreaming.setRequired(false);
+		options.addOption(optionStreaming);
+
+		final Option optionGzip = new Option("z", "gzip", false,
+				"Compress Revolut csv with gzip, .gz is appended to file name.");
+		optionGzip.setRequired(false);
+		options.addOption(optionGzip);
+
+		final Option optionDigest = new Option("d", "digest", false,
+				"Write SHA-256 digest of Revolut csv file to file with .sha256 extension.");
+		optionDigest.setRequired(false);
+		options.addOption(optionDigest);
+
+		final Option optionValidate = new Option("v", "validate", false,
+				"Validate pain.001.001.03 file against XSD and check creditor IBAN's and BIC's, invalid file is not converted.");
+		optionValidate.setRequired(false);
+		options.addOption(optionValidate);
+
+		final Option optionMaxRows = new Option("r", "max-rows", true,
+				"Split Revolut csv to files with at most this number of rows, manifest with control sums is written beside them.");
+		optionMaxRows.setRequired(false);
+		options.addOption(optionMaxRows);
+
+		final Option optionMaxAmount = new Option("m", "max-amount", true,
+				"Split Revolut csv to files with at most this total amount of every currency, manifest with control sums is written beside them.");
+		optionMaxAmount.setRequired(false);
+		options.addOption(optionMaxAmount);
+
+		final Option optionParallelism = new Option("P", "parallelism", true,
+				"Number of split files written concurrently, default - number of available processors.");
+		optionParallelism.setRequired(false);
+		options.addOption(optionParallelism);
+
 		CommandLineParser parser = new DefaultParser();
 		HelpFormatter formatter = new HelpFormatter();
 		CommandLine cmd = null;
+		int maxRows = 0;
+		BigDecimal maxAmount = null;
+		int parallelism = Runtime.getRuntime().availableProcessors();
 		try {
 			cmd = parser.parse(options, argv);
-		} catch (org.apache.commons.cli.ParseException pe) {
+			if (cmd.hasOption("r")) {
+				maxRows = Integer.parseInt(cmd.getOptionValue("r"));
+			}
+			if (cmd.hasOption("m")) {
+				maxAmount = new BigDecimal(cmd.getOptionValue("m"));
+			}
+			if (cmd.hasOption("P")) {
+				parallelism = Integer.parseInt(cmd.getOptionValue("P"));
+			}
+			if (maxRows < 0 || (maxAmount != null && maxAmount.signum() <= 0) || parallelism < 1) {
+				throw new org.apache.commons.cli.ParseException("Maximal rows, maximal amount and parallelism must be positive!");
+			}
+			if (!cmd.hasOption("i") && !cmd.hasOption("f")) {
+				throw new org.apache.commons.cli.ParseException("Personal IBAN's (-i) or file with personal IBAN's (-f) is required!");
+			}
+		} catch (org.apache.commons.cli.ParseException | IllegalArgumentException pe) {
 			LOGGER.error(pe.getMessage());
 			formatter.printHelp(CreditTransferInitiation.class.getCanonicalName(), options);
 			System.exit(1);
 		}
 
 		final String fileName = cmd.getOptionValue("s");
-		final List<String> personalIbans = Arrays.asList(cmd.getOptionValue("i").split(","));
 
 		try {
-			CreditTransferInitiation cti = new CreditTransferInitiation(fileName);
+			// Explicit list takes precedence over file, as in BatchConverter and WatchFolderDaemon
+			final RecipientRegistry personalIbans = cmd.hasOption("i")
+					? RecipientRegistry.parse(cmd.getOptionValue("i"))
+					: RecipientRegistry.load(Paths.get(cmd.getOptionValue("f")));
+			CreditTransferInitiation cti = new CreditTransferInitiation(fileName, cmd.hasOption("x"), cmd.hasOption("v"));
+			cti.sink(new OutputSink(false, cmd.hasOption("z"), cmd.hasOption("d")));
+			if (maxRows > 0 || maxAmount != null) {
+				cti.chunks(maxRows, maxAmount, parallelism);
+			}
 			cti.write(SepaUtils.getOutputName(fileName, true), personalIbans);
 		} catch (IOException | JAXBException e) {
 			LOGGER.error(e.getMessage());
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Thread-safe converter of single file, chooses BankToCustomerStatement for Revolut .csv
+ * (.csv.gz, .zip) statements and CreditTransferInitiation for pain.001.001.03 .xml files. Party information
+ * and personal IBAN's are prepared once and shared between conversions, personal IBAN's file is shared
+ * by all converters and is reloaded before conversion when it was changed.
+ */
+public class FileConverter {
+
+	private final String timeZoneName;
+	private final String currencyCode;
+	private final String partyCountryCode;
+	private final String partyAdrLine1;
+	private final String partyAdrLine2;
+	private final String partyName;
+	private final String branchCountry;
+	private final String branchBic;
+	private final String branchName;
+	private final String iban;
+	private final RecipientRegistry personalIbans;
+	private final RecipientRegistry.Reloading personalIbansFile;
+	private final boolean streaming;
+
+	/**
+	 *
+	 * @param pm            - stored party information, used when values below are blank
+	 * @param partyName     - party name
+	 * @param iban          - statement IBAN
+	 * @param partyAddress  - party address
+	 * @param personalIbans - comma separated list of personal IBAN's, when blank file
+	 *                        {@link PropertiesManager#personalIbansFile()} or list from Setup is used
+	 * @param streaming     - convert files without building whole document in memory
+	 */
+	public FileConverter(
+			final PropertiesManager pm,
+			final String partyName,
+			final String iban,
+			final String partyAddress,
+			final String personalIbans,
+			final boolean streaming) {
+		this.timeZoneName = pm.tz();
+		this.currencyCode = pm.currency();
+		this.partyCountryCode = pm.partyCountry();
+		this.branchCountry = pm.branchCountry();
+		this.branchBic = pm.bic();
+		this.branchName = pm.branch();
+		this.partyName = StringUtils.defaultIfBlank(partyName, pm.partyName());
+		this.iban = StringUtils.defaultIfBlank(iban, pm.iban());
+		if (StringUtils.isBlank(partyAddress)) {
+			this.partyAdrLine1 = pm.addressLine1();
+			this.partyAdrLine2 = StringUtils.defaultString(pm.addressLine2());
+		} else {
+			this.partyAdrLine1 = partyAddress;
+			this.partyAdrLine2 = "";
+		}
+		final String ibanFile = StringUtils.isBlank(personalIbans) ? pm.personalIbansFile() : null;
+		if (StringUtils.isBlank(ibanFile)) {
+			this.personalIbansFile = null;
+			this.personalIbans = RecipientRegistry.parse(
+					StringUtils.defaultIfBlank(personalIbans, pm.personalIbans()));
+		} else {
+			this.personalIbansFile = RecipientRegistry.file(Paths.get(ibanFile));
+			this.personalIbans = null;
+		}
+		this.streaming = streaming;
+	}
+
+	public static boolean isStatement(final Path source) {
+		return StatementInput.isStatement(source.getFileName().toString());
+	}
+
+	public static boolean isPaymentBatch(final Path source) {
+		return StringUtils.endsWithIgnoreCase(source.getFileName().toString(), ".xml");
+	}
+
+	/**
+	 *
+	 * @param source          - file to convert
+	 * @param outputDirectory - directory for result, when null result is written beside source
+	 * @return name of output file as returned by SepaUtils.getOutputName
+	 */
+	public static Path outputPath(final Path source, final Path outputDirectory) {
+		final Path output = source.resolveSibling(
+				SepaUtils.getOutputName(source.getFileName().toString(), isPaymentBatch(source)));
+		if (outputDirectory == null) {
+			return output;
+		} else {
+			return outputDirectory.resolve(output.getFileName());
+		}
+	}
+
+	/**
+	 *
+	 * @param source - Revolut statement (.csv, .csv.gz or .zip) or pain.001.001.03 (.xml) file
+	 * @param output - camt.053.001.02 (.xml) or Revolut bulk payment (.csv) file
+	 * @throws IOException
+	 * @throws JAXBException
+	 */
+	public void convert(final Path source, final Path output) throws IOException, JAXBException {
+		if (isStatement(source)) {
+			if (StringUtils.isAnyBlank(partyName, iban, partyAdrLine1)) {
+				throw new IOException("Party name, IBAN and address are required for statement conversion!");
+			}
+			final BankToCustomerStatement statement = new BankToCustomerStatement(
+					timeZoneName, currencyCode, source.toString(), streaming);
+			statement.write(
+					partyCountryCode, partyAdrLine1, partyAdrLine2, partyName,
+					branchCountry, branchBic, branchName, iban,
+					output.toString());
+		} else if (isPaymentBatch(source)) {
+			final CreditTransferInitiation cti = new CreditTransferInitiation(source.toString(), streaming);
+			cti.write(output.toString(),
+					personalIbansFile == null ? personalIbans : personalIbansFile.current());
+		} else {
+			throw new IOException("Unable to determine type of " + source + ", .csv, .csv.gz, .zip or .xml file expected!");
+		}
+	}
+
+}
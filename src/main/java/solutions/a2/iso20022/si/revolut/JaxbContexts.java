@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.net.URL;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+/**
+ * Process-wide registry of JAXBContext for generated camt.053.001.02 and pain.001.001.03
+ * packages. Context is created lazily once per JVM, Marshaller and Unmarshaller instances
+ * are not thread-safe and are pooled: borrow, use in one thread and release in finally block.
+ * Schema of bundled XSD is compiled lazily once per JVM too, it is thread-safe and is attached
+ * to borrowed Marshaller or Unmarshaller when validation is requested.
+ */
+public class JaxbContexts {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JaxbContexts.class);
+
+	public static final String CAMT053_PACKAGE = "solutions.a2.iso20022.camt053.v001_02";
+	public static final String PAIN001_PACKAGE = "solutions.a2.iso20022.pain001.v001_03";
+
+	/** JVM argument -Da2.jaxb.warmup=true enables {@link #warmUp()} in interactive utility */
+	public static final String WARMUP_PROPERTY = "a2.jaxb.warmup";
+
+	private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	private static final JaxbContexts CAMT053 = new JaxbContexts(CAMT053_PACKAGE, "/xsd/camt.053.001.02.xsd");
+	private static final JaxbContexts PAIN001 = new JaxbContexts(PAIN001_PACKAGE, "/xsd/pain.001.001.03.xsd");
+
+	private final String contextPath;
+	private final String schemaResource;
+	private final BlockingQueue<Marshaller> marshallers;
+	private final BlockingQueue<Unmarshaller> unmarshallers;
+	private volatile JAXBContext context;
+	private volatile Schema schema;
+
+	private JaxbContexts(final String contextPath, final String schemaResource) {
+		this.contextPath = contextPath;
+		this.schemaResource = schemaResource;
+		marshallers = new ArrayBlockingQueue<>(POOL_SIZE);
+		unmarshallers = new ArrayBlockingQueue<>(POOL_SIZE);
+	}
+
+	public static JaxbContexts camt053() {
+		return CAMT053;
+	}
+
+	public static JaxbContexts pain001() {
+		return PAIN001;
+	}
+
+	/**
+	 * Builds both contexts and one pooled Marshaller and Unmarshaller of each in background
+	 * daemon thread, so first conversion does not wait for JAXB introspection of generated
+	 * packages
+	 *
+	 * @return started warm-up thread
+	 */
+	public static Thread warmUp() {
+		final Thread thread = new Thread(() -> {
+			final long started = System.currentTimeMillis();
+			try {
+				for (JaxbContexts contexts : new JaxbContexts[] {CAMT053, PAIN001}) {
+					contexts.release(contexts.borrowMarshaller());
+					contexts.release(contexts.borrowUnmarshaller());
+				}
+				LOGGER.debug("JAXB warm-up completed in {} ms.", System.currentTimeMillis() - started);
+			} catch (JAXBException e) {
+				LOGGER.warn("JAXB warm-up failed: {}", e.getMessage());
+			}
+		}, "jaxb-warm-up");
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	public JAXBContext context() throws JAXBException {
+		JAXBContext result = context;
+		if (result == null) {
+			synchronized (this) {
+				result = context;
+				if (result == null) {
+					final long started = System.currentTimeMillis();
+					result = JAXBContext.newInstance(contextPath);
+					context = result;
+					LOGGER.debug("JAXBContext for {} created in {} ms.",
+							contextPath, System.currentTimeMillis() - started);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @return compiled schema of package, shared between threads
+	 * @throws JAXBException
+	 */
+	public Schema schema() throws JAXBException {
+		Schema result = schema;
+		if (result == null) {
+			synchronized (this) {
+				result = schema;
+				if (result == null) {
+					final long started = System.currentTimeMillis();
+					final URL xsd = JaxbContexts.class.getResource(schemaResource);
+					if (xsd == null) {
+						throw new JAXBException("Schema " + schemaResource + " not found!");
+					}
+					try {
+						result = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(xsd);
+					} catch (SAXException se) {
+						throw new JAXBException(se);
+					}
+					schema = result;
+					LOGGER.debug("Schema {} compiled in {} ms.",
+							schemaResource, System.currentTimeMillis() - started);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @return pooled or new Marshaller with UTF-8 encoding, caller must return it with
+	 *         {@link #release(Marshaller)}
+	 * @throws JAXBException
+	 */
+	public Marshaller borrowMarshaller() throws JAXBException {
+		final Marshaller marshaller = marshallers.poll();
+		if (marshaller != null) {
+			return marshaller;
+		} else {
+			final Marshaller created = context().createMarshaller();
+			created.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+			return created;
+		}
+	}
+
+	/**
+	 *
+	 * @param errors - collects validation errors of marshalled document
+	 * @return pooled or new Marshaller which validates output against schema, caller must
+	 *         return it with {@link #release(Marshaller)}
+	 * @throws JAXBException
+	 */
+	public Marshaller borrowMarshaller(final ValidationErrors errors) throws JAXBException {
+		final Schema compiled = schema();
+		final Marshaller marshaller = borrowMarshaller();
+		marshaller.setSchema(compiled);
+		marshaller.setEventHandler(errors);
+		return marshaller;
+	}
+
+	public void release(final Marshaller marshaller) {
+		if (marshaller != null) {
+			try {
+				marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+				marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.FALSE);
+				marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+				marshaller.setSchema(null);
+				marshaller.setEventHandler(null);
+				marshallers.offer(marshaller);
+			} catch (JAXBException e) {
+				LOGGER.warn("Unable to reset Marshaller, it will not be pooled: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return pooled or new Unmarshaller, caller must return it with
+	 *         {@link #release(Unmarshaller)}
+	 * @throws JAXBException
+	 */
+	public Unmarshaller borrowUnmarshaller() throws JAXBException {
+		final Unmarshaller unmarshaller = unmarshallers.poll();
+		if (unmarshaller != null) {
+			return unmarshaller;
+		} else {
+			return context().createUnmarshaller();
+		}
+	}
+
+	/**
+	 *
+	 * @param errors - collects validation errors of unmarshalled document
+	 * @return pooled or new Unmarshaller which validates input against schema, caller must
+	 *         return it with {@link #release(Unmarshaller)}
+	 * @throws JAXBException
+	 */
+	public Unmarshaller borrowUnmarshaller(final ValidationErrors errors) throws JAXBException {
+		final Schema compiled = schema();
+		final Unmarshaller unmarshaller = borrowUnmarshaller();
+		unmarshaller.setSchema(compiled);
+		unmarshaller.setEventHandler(errors);
+		return unmarshaller;
+	}
+
+	public void release(final Unmarshaller unmarshaller) {
+		if (unmarshaller != null) {
+			try {
+				unmarshaller.setSchema(null);
+				unmarshaller.setEventHandler(null);
+				unmarshallers.offer(unmarshaller);
+			} catch (JAXBException e) {
+				LOGGER.warn("Unable to reset Unmarshaller, it will not be pooled: {}", e.getMessage());
+			}
+		}
+	}
+
+}
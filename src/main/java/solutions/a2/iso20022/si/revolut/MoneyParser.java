@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+
+/**
+ * Thread-safe parser of Revolut money columns ("-1234.5", "1,234.56") into long minor units
+ * (cents). Works directly on characters of CSV field, BigDecimal is created only when
+ * value is passed to JAXB model, always with scale {@link #SCALE} ("100" is written as
+ * "100.00"). Values with more than {@link #SCALE} non-zero fraction digits are rejected.
+ */
+public class MoneyParser {
+
+	public static final int SCALE = 2;
+
+	private static final long MAX_BEFORE_MULTIPLY = Long.MAX_VALUE / 10;
+
+	private MoneyParser() {}
+
+	/**
+	 *
+	 * @param value - amount with '.' as decimal separator and optional ',' grouping separator
+	 * @return amount in minor units
+	 * @throws ParseException when value is blank, contains wrong characters, has more than
+	 *                        {@link #SCALE} significant fraction digits or does not fit in long
+	 */
+	public static long parse(final CharSequence value) throws ParseException {
+		if (value == null) {
+			throw new ParseException("Unable to parse null as amount!", 0);
+		}
+		int pos = 0;
+		int end = value.length();
+		while (pos < end && value.charAt(pos) <= ' ') {
+			pos++;
+		}
+		while (end > pos && value.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (pos == end) {
+			throw new ParseException("Unable to parse empty string as amount!", pos);
+		}
+		boolean negative = false;
+		if (value.charAt(pos) == '-') {
+			negative = true;
+			pos++;
+		} else if (value.charAt(pos) == '+') {
+			pos++;
+		}
+		long result = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		for (; pos < end; pos++) {
+			final char ch = value.charAt(pos);
+			if (ch >= '0' && ch <= '9') {
+				if (fractionDigits < 0) {
+					result = appendDigit(value, pos, result, ch);
+				} else if (fractionDigits < SCALE) {
+					result = appendDigit(value, pos, result, ch);
+					fractionDigits++;
+				} else if (ch != '0') {
+					throw new ParseException("More than " + SCALE + " decimal places in '" + value + "'!", pos);
+				}
+				digits++;
+			} else if (ch == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+			} else if (ch == ',' && fractionDigits < 0 && digits > 0) {
+				// Grouping separator
+				continue;
+			} else {
+				throw new ParseException("Unexpected character '" + ch + "' in amount '" + value + "'!", pos);
+			}
+		}
+		if (digits == 0) {
+			throw new ParseException("No digits in amount '" + value + "'!", pos);
+		}
+		for (int i = Math.max(fractionDigits, 0); i < SCALE; i++) {
+			result = appendDigit(value, pos, result, '0');
+		}
+		return negative ? -result : result;
+	}
+
+	private static long appendDigit(
+			final CharSequence value, final int pos, final long result, final char ch) throws ParseException {
+		if (result > MAX_BEFORE_MULTIPLY) {
+			throw new ParseException("Amount '" + value + "' is too large!", pos);
+		}
+		final long next = result * 10 + (ch - '0');
+		if (next < 0) {
+			throw new ParseException("Amount '" + value + "' is too large!", pos);
+		}
+		return next;
+	}
+
+	public static BigDecimal toBigDecimal(final long minorUnits) {
+		return BigDecimal.valueOf(minorUnits, SCALE);
+	}
+
+}
@@ -0,0 +1,325 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Output of converted files. Data is written with large buffer directly to FileChannel of
+ * temporary file in destination directory, optionally gzip compressed and with SHA-256 digest
+ * calculated from written bytes, so file is never read again for checksum. Only committed
+ * output is moved (atomically, when supported) to destination, output which is closed without
+ * commit is deleted. Digest is written beside output as &lt;output&gt;.sha256 in sha256sum
+ * format.
+ */
+public class OutputSink {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OutputSink.class);
+
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+	public static final String GZIP_SUFFIX = ".gz";
+	public static final String DIGEST_SUFFIX = ".sha256";
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final int GZIP_BUFFER_SIZE = 0x10000;
+
+	/** Formatted XML without compression and digest */
+	public static final OutputSink DEFAULT = new OutputSink(false, false, false);
+
+	private final boolean compact;
+	private final boolean gzip;
+	private final boolean digest;
+	private final int bufferSize;
+
+	/**
+	 *
+	 * @param compact - write XML without indentation
+	 * @param gzip    - compress output, {@link #GZIP_SUFFIX} is appended to file name
+	 * @param digest  - write SHA-256 digest of output to file with {@link #DIGEST_SUFFIX}
+	 */
+	public OutputSink(final boolean compact, final boolean gzip, final boolean digest) {
+		this(compact, gzip, digest, DEFAULT_BUFFER_SIZE);
+	}
+
+	public OutputSink(final boolean compact, final boolean gzip, final boolean digest, final int bufferSize) {
+		this.compact = compact;
+		this.gzip = gzip;
+		this.digest = digest;
+		this.bufferSize = bufferSize;
+	}
+
+	public boolean compact() {
+		return compact;
+	}
+
+	/**
+	 * @return name of file which is created for fileName
+	 */
+	public String target(final String fileName) {
+		if (gzip && !StringUtils.endsWithIgnoreCase(fileName, GZIP_SUFFIX)) {
+			return fileName + GZIP_SUFFIX;
+		} else {
+			return fileName;
+		}
+	}
+
+	/**
+	 * Opens temporary file for output, caller must {@link Output#commit()} it and close it
+	 * in finally block (or try-with-resources)
+	 */
+	public Output open(final String fileName) throws IOException {
+		return new Output(Paths.get(target(fileName)).toAbsolutePath());
+	}
+
+	public final class Output implements Closeable {
+
+		private final Path target;
+		private final Path temp;
+		private final FileChannel channel;
+		private final ChannelStream channelStream;
+		private OutputStream stream;
+		private boolean finished = false;
+		private boolean committed = false;
+
+		private Output(final Path target) throws IOException {
+			this.target = target;
+			this.temp = temp(target);
+			this.channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+			try {
+				channelStream = new ChannelStream(channel, bufferSize, digest ? messageDigest() : null);
+				// Deflater is slow with small writes of XMLStreamWriter and CSVPrinter, input is buffered too
+				stream = gzip ?
+						new BufferedOutputStream(new GZIPOutputStream(channelStream, GZIP_BUFFER_SIZE), GZIP_BUFFER_SIZE) :
+						channelStream;
+			} catch (IOException ioe) {
+				channel.close();
+				Files.deleteIfExists(temp);
+				throw ioe;
+			}
+		}
+
+		/**
+		 * @return stream for converted data, closing it does not commit output
+		 */
+		public OutputStream stream() {
+			return stream;
+		}
+
+		/**
+		 * @return destination file
+		 */
+		public Path path() {
+			return target;
+		}
+
+		/**
+		 * @return number of bytes written to file
+		 */
+		public long bytes() {
+			return channelStream.bytes;
+		}
+
+		/**
+		 * Finishes compression, writes buffer, forces file to storage and closes it. Output
+		 * stays in temporary file and buffers are released until it is committed or closed.
+		 */
+		public void finish() throws IOException {
+			if (!finished) {
+				stream.close();
+				channel.force(true);
+				channel.close();
+				stream = null;
+				finished = true;
+			}
+		}
+
+		/**
+		 * Finishes output when it was not finished yet, moves it to destination and writes digest
+		 */
+		public void commit() throws IOException {
+			finish();
+			move(temp, target);
+			committed = true;
+			if (channelStream.md != null) {
+				final Path digestFile = target.resolveSibling(target.getFileName() + DIGEST_SUFFIX);
+				final Path digestTemp = temp(digestFile);
+				Files.write(digestTemp, (hex(channelStream.md.digest()) + "  " + target.getFileName() + "\n")
+						.getBytes(StandardCharsets.UTF_8));
+				OutputSink.commit(digestTemp, digestFile);
+			}
+		}
+
+		/**
+		 * Closes file, output which is not committed is deleted
+		 */
+		@Override
+		public void close() throws IOException {
+			if (!committed) {
+				try {
+					channel.close();
+				} finally {
+					if (Files.deleteIfExists(temp)) {
+						LOGGER.debug("Output {} was not committed, temporary file {} deleted.", target, temp);
+					}
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Buffered stream over FileChannel which updates digest with every buffer written to channel
+	 */
+	private static final class ChannelStream extends OutputStream {
+
+		private final FileChannel channel;
+		private byte[] buffer;
+		private final MessageDigest md;
+		private int position = 0;
+		private long bytes = 0;
+		private boolean closed = false;
+
+		ChannelStream(final FileChannel channel, final int bufferSize, final MessageDigest md) {
+			this.channel = channel;
+			this.buffer = new byte[bufferSize];
+			this.md = md;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			if (position == buffer.length) {
+				drain();
+			}
+			buffer[position++] = (byte) b;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			if (len > buffer.length - position) {
+				drain();
+				if (len >= buffer.length) {
+					write(ByteBuffer.wrap(b, off, len));
+					if (md != null) {
+						md.update(b, off, len);
+					}
+					return;
+				}
+			}
+			System.arraycopy(b, off, buffer, position, len);
+			position += len;
+		}
+
+		/**
+		 * Buffer is written to channel only when it is full or stream is closed
+		 */
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				drain();
+				closed = true;
+				buffer = null;
+			}
+		}
+
+		private void drain() throws IOException {
+			if (position > 0) {
+				if (md != null) {
+					md.update(buffer, 0, position);
+				}
+				write(ByteBuffer.wrap(buffer, 0, position));
+				position = 0;
+			}
+		}
+
+		private void write(final ByteBuffer bb) throws IOException {
+			bytes += bb.remaining();
+			while (bb.hasRemaining()) {
+				channel.write(bb);
+			}
+		}
+
+	}
+
+	/**
+	 * Forces content of completely written temporary file to storage and moves it to target,
+	 * so target is never seen empty or truncated after crash
+	 */
+	static void commit(final Path temp, final Path target) throws IOException {
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+		move(temp, target);
+	}
+
+	/**
+	 * Moves temp to target, atomically when file system supports it
+	 */
+	private static void move(final Path temp, final Path target) throws IOException {
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException amnse) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Temporary file in same directory, unlike Files.createTempFile() it is created with
+	 * default permissions of destination directory
+	 */
+	private static Path temp(final Path target) {
+		return target.resolveSibling(target.getFileName() + "." +
+				Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+	}
+
+	private static MessageDigest messageDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new IOException(nsae);
+		}
+	}
+
+	private static String hex(final byte[] bytes) {
+		final StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+}
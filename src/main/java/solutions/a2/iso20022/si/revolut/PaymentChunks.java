@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Revolut bulk payment csv split to chunks of at most maxRows rows and at most maxAmount
+ * total amount of every currency. Rows are assigned to chunks in order of pain.001.001.03,
+ * chunk is closed when next row does not fit in it, so chunk names and contents depend only
+ * on input and limits: payments.csv gives payments-001.csv, payments-002.csv... Completed
+ * chunks are written to temporary files by worker threads while next chunk is collected, at
+ * most parallelism chunks are written at the same time. Chunks are moved to their names only
+ * in {@link #commit()}, after all rows were read and checked, followed by manifest
+ * payments-manifest.csv with number of rows and control sum of every chunk and currency. When
+ * conversion fails temporary files are deleted and manifest is not written.
+ */
+public class PaymentChunks implements Closeable, CreditTransferInitiation.TransferSink {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PaymentChunks.class);
+
+	public static final String MANIFEST_SUFFIX = "-manifest.csv";
+	private static final CSVFormat MANIFEST_FORMAT = CSVFormat.DEFAULT.builder()
+			.setHeader("File", "Currency", "Rows", "Control sum")
+			.build();
+
+	private final String baseName;
+	private final CSVFormat format;
+	private final OutputSink sink;
+	private final int maxRows;
+	private final BigDecimal maxAmount;
+	private final ExecutorService executor;
+	private final Semaphore writing;
+	private final List<Chunk> chunks = new ArrayList<>();
+	private List<Object[]> records = new ArrayList<>();
+	private Map<String, Total> totals = new TreeMap<>();
+	private boolean committed = false;
+
+	/**
+	 *
+	 * @param fileName    - Revolut bulk payment csv file, chunk number is appended to name
+	 * @param format      - csv format with header
+	 * @param sink        - output of chunks
+	 * @param maxRows     - maximal number of rows in chunk, 0 - no limit
+	 * @param maxAmount   - maximal total amount of every currency in chunk, null - no limit
+	 * @param parallelism - maximal number of chunks written concurrently
+	 */
+	public PaymentChunks(final String fileName, final CSVFormat format, final OutputSink sink,
+			final int maxRows, final BigDecimal maxAmount, final int parallelism) {
+		if (maxRows < 0 || (maxAmount != null && maxAmount.signum() <= 0) || parallelism < 1) {
+			throw new IllegalArgumentException("Chunk limits and parallelism must be positive!");
+		}
+		this.baseName = StringUtils.removeEndIgnoreCase(fileName, ".csv");
+		this.format = format;
+		this.sink = sink;
+		this.maxRows = maxRows;
+		this.maxAmount = maxAmount;
+		this.executor = Executors.newFixedThreadPool(parallelism);
+		this.writing = new Semaphore(parallelism);
+	}
+
+	@Override
+	public void add(final Object[] record, final String currency, final BigDecimal amount) throws IOException {
+		if (!records.isEmpty() && !fits(currency, amount)) {
+			submit();
+		}
+		if (maxAmount != null && amount.compareTo(maxAmount) > 0) {
+			LOGGER.warn("Amount {} {} is over chunk limit {}, written as single row chunk {}.",
+					amount, currency, maxAmount, chunkName(chunks.size() + 1));
+		}
+		records.add(record);
+		totals.computeIfAbsent(currency, ccy -> new Total()).add(amount);
+	}
+
+	private boolean fits(final String currency, final BigDecimal amount) {
+		if (maxRows > 0 && records.size() >= maxRows) {
+			return false;
+		}
+		if (maxAmount != null) {
+			final Total total = totals.get(currency);
+			final BigDecimal sum = total == null ? amount : total.sum.add(amount);
+			return sum.compareTo(maxAmount) <= 0;
+		}
+		return true;
+	}
+
+	/**
+	 * Passes collected rows to worker thread, waits while parallelism chunks are written
+	 */
+	private void submit() throws IOException {
+		final Chunk chunk = new Chunk(chunkName(chunks.size() + 1), records, totals);
+		records = new ArrayList<>();
+		totals = new TreeMap<>();
+		try {
+			writing.acquire();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException(ie);
+		}
+		chunks.add(chunk);
+		chunk.future = executor.submit(() -> {
+			try {
+				write(chunk);
+				return null;
+			} finally {
+				writing.release();
+			}
+		});
+	}
+
+	private String chunkName(final int number) {
+		return String.format("%s-%03d.csv", baseName, number);
+	}
+
+	/**
+	 * Writes chunk to temporary file, it is committed by {@link #commit()}
+	 */
+	private void write(final Chunk chunk) throws IOException {
+		final OutputSink.Output output = sink.open(chunk.fileName);
+		chunk.output = output;
+		final CSVPrinter printer = new CSVPrinter(
+				new OutputStreamWriter(output.stream(), StandardCharsets.UTF_8), format);
+		for (Object[] record : chunk.records) {
+			printer.printRecord(record);
+		}
+		printer.close();
+		output.finish();
+		chunk.bytes = output.bytes();
+		// Rows are not needed until manifest is written
+		chunk.records = null;
+	}
+
+	/**
+	 * Writes last chunk, waits for all chunks, moves them to destination and writes manifest
+	 *
+	 * @return chunk files in order
+	 */
+	public List<Path> commit() throws IOException {
+		if (!records.isEmpty()) {
+			submit();
+		}
+		for (Chunk chunk : chunks) {
+			try {
+				chunk.future.get();
+			} catch (ExecutionException ee) {
+				if (ee.getCause() instanceof IOException) {
+					throw (IOException) ee.getCause();
+				} else {
+					throw new IOException(ee.getCause());
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new IOException(ie);
+			}
+		}
+		for (Chunk chunk : chunks) {
+			chunk.output.commit();
+			chunk.path = chunk.output.path();
+		}
+		final List<Path> files = new ArrayList<>(chunks.size());
+		try (OutputSink.Output output = OutputSink.DEFAULT.open(baseName + MANIFEST_SUFFIX)) {
+			final CSVPrinter printer = new CSVPrinter(
+					new OutputStreamWriter(output.stream(), StandardCharsets.UTF_8), MANIFEST_FORMAT);
+			for (Chunk chunk : chunks) {
+				files.add(chunk.path);
+				for (Map.Entry<String, Total> total : chunk.totals.entrySet()) {
+					printer.printRecord(chunk.path.getFileName(), total.getKey(),
+							total.getValue().rows, total.getValue().sum.toPlainString());
+				}
+			}
+			printer.close();
+			output.commit();
+		}
+		committed = true;
+		LOGGER.debug("{} chunk(s) of {}.csv written.", chunks.size(), baseName);
+		return files;
+	}
+
+	/**
+	 * @return number of bytes written to chunk files
+	 */
+	public long bytes() {
+		long bytes = 0;
+		for (Chunk chunk : chunks) {
+			bytes += chunk.bytes;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Stops workers, when chunks were not committed deletes temporary files and chunks which
+	 * were already moved
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdownNow();
+		if (!committed) {
+			try {
+				if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+					LOGGER.warn("Chunks of {}.csv are still written.", baseName);
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			for (Chunk chunk : chunks) {
+				if (chunk.output != null) {
+					chunk.output.close();
+				}
+				if (chunk.path != null) {
+					Files.deleteIfExists(chunk.path);
+					Files.deleteIfExists(chunk.path.resolveSibling(chunk.path.getFileName() + OutputSink.DIGEST_SUFFIX));
+				}
+			}
+		}
+	}
+
+	private static final class Chunk {
+		private final String fileName;
+		private final Map<String, Total> totals;
+		private volatile List<Object[]> records;
+		private volatile OutputSink.Output output;
+		private volatile Path path;
+		private volatile long bytes;
+		private Future<?> future;
+
+		Chunk(final String fileName, final List<Object[]> records, final Map<String, Total> totals) {
+			this.fileName = fileName;
+			this.records = records;
+			this.totals = totals;
+		}
+	}
+
+	/**
+	 * Number of rows and control sum of one currency in chunk
+	 */
+	private static final class Total {
+		private long rows;
+		private BigDecimal sum = BigDecimal.ZERO;
+
+		void add(final BigDecimal amount) {
+			rows++;
+			sum = sum.add(amount);
+		}
+	}
+
+}
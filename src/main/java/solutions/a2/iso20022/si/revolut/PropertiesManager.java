@@ -36,6 +36,7 @@ public class PropertiesManager {
 	private static final String PROPERTY_ADDR_LINE_1 = "ADDR_LINE_1";
 	private static final String PROPERTY_ADDR_LINE_2 = "ADDR_LINE_2";
 	private static final String PERSONAL_IBANS = "PERSONAL_IBANS";
+	private static final String PERSONAL_IBANS_FILE = "PERSONAL_IBANS_FILE";
 
 	public static String CURRENCY_CODE = "EUR";
 	public static String PARTY_COUNTRY = "SI";
@@ -113,6 +114,10 @@ public class PropertiesManager {
 		props.setProperty(PERSONAL_IBANS, personalIbansList);
 	}
 
+	public void personalIbansFile(final String personalIbansFile) {
+		props.setProperty(PERSONAL_IBANS_FILE, personalIbansFile);
+	}
+
 	public boolean empty() {
 		return StringUtils.isBlank(props.getProperty(PROPERTY_PARTY)) ||
 				StringUtils.isBlank(props.getProperty(PROPERTY_IBAN)) ||
@@ -164,4 +169,11 @@ public class PropertiesManager {
 		return props.getProperty(PERSONAL_IBANS);
 	}
 
+	/**
+	 * @return file with IBAN's of individuals, takes precedence over {@link #personalIbans()}
+	 */
+	public String personalIbansFile() {
+		return props.getProperty(PERSONAL_IBANS_FILE);
+	}
+
 }
@@ -0,0 +1,364 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable set of IBAN's of individuals, Revolut recipient type of credit transfer to IBAN
+ * in registry is Individual, to any other IBAN - Company. IBAN's are normalized once (spaces
+ * removed, upper-cased), sorted and packed to one byte array with offsets, membership is
+ * checked by Bloom filter first and by binary search over packed IBAN's only when filter
+ * answers "maybe". Lookup does not allocate, registry is thread-safe and is shared between
+ * conversions. Registry file has one or more comma separated IBAN's per line, text after #
+ * is comment. File registry returned by {@link #file(Path)} is shared by all converters in
+ * JVM and is reloaded when file is changed.
+ */
+public final class RecipientRegistry {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RecipientRegistry.class);
+
+	public static final RecipientRegistry EMPTY = new RecipientRegistry(new String[0]);
+
+	/** Number of Bloom filter probes, with at least 10 bits per IBAN false positive rate is below 1% */
+	private static final int PROBES = 7;
+	private static final int BITS_PER_IBAN = 10;
+	private static final int MAX_BITS = 1 << 30;
+
+	private static final Map<Path, Reloading> FILES = new ConcurrentHashMap<>();
+
+	private final byte[] ibans;
+	private final int[] offsets;
+	private final long[] bloom;
+	private final int bloomMask;
+
+	private RecipientRegistry(final String[] sorted) {
+		offsets = new int[sorted.length + 1];
+		int length = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			offsets[i] = length;
+			length += sorted[i].length();
+		}
+		offsets[sorted.length] = length;
+		ibans = new byte[length];
+		for (int i = 0; i < sorted.length; i++) {
+			final String iban = sorted[i];
+			for (int j = 0; j < iban.length(); j++) {
+				ibans[offsets[i] + j] = (byte) iban.charAt(j);
+			}
+		}
+		final int bits = sorted.length * BITS_PER_IBAN >= MAX_BITS / 2
+				? MAX_BITS
+				: Integer.highestOneBit(Math.max(64, sorted.length * BITS_PER_IBAN - 1)) << 1;
+		bloom = new long[bits >>> 6];
+		bloomMask = bits - 1;
+		for (String iban : sorted) {
+			final long hash = hash(iban);
+			final int h1 = (int) hash;
+			final int h2 = (int) (hash >>> 32) | 1;
+			for (int k = 0; k < PROBES; k++) {
+				final int bit = (h1 + k * h2) & bloomMask;
+				bloom[bit >>> 6] |= 1L << bit;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param personalIbans - IBAN's of individuals, with or without spaces, in any case
+	 * @return registry, invalid IBAN's are skipped with warning
+	 */
+	public static RecipientRegistry of(final Collection<String> personalIbans) {
+		if (personalIbans == null || personalIbans.isEmpty()) {
+			return EMPTY;
+		}
+		final List<String> normalized = new ArrayList<>(personalIbans.size());
+		for (String iban : personalIbans) {
+			add(normalized, iban, null);
+		}
+		return build(normalized);
+	}
+
+	/**
+	 *
+	 * @param personalIbans - comma separated list of IBAN's, as stored in Setup
+	 * @return registry, empty when list is blank
+	 */
+	public static RecipientRegistry parse(final String personalIbans) {
+		if (personalIbans == null || personalIbans.isBlank()) {
+			return EMPTY;
+		}
+		return of(Arrays.asList(personalIbans.split(",")));
+	}
+
+	/**
+	 * Reads registry file once, use {@link #file(Path)} for shared registry reloaded on change
+	 *
+	 * @param file - UTF-8 text file with comma separated IBAN's, # starts comment
+	 * @return registry
+	 * @throws IOException
+	 */
+	public static RecipientRegistry load(final Path file) throws IOException {
+		final List<String> normalized = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				final int comment = line.indexOf('#');
+				if (comment >= 0) {
+					line = line.substring(0, comment);
+				}
+				for (String iban : line.split(",")) {
+					add(normalized, iban, file + ", line " + lineNumber);
+				}
+			}
+		}
+		final RecipientRegistry registry = build(normalized);
+		LOGGER.debug("{} personal IBAN's loaded from {}.", registry.size(), file);
+		return registry;
+	}
+
+	/**
+	 *
+	 * @param file - registry file
+	 * @return registry of file shared by all callers, reloaded when file is modified
+	 */
+	public static Reloading file(final Path file) {
+		return FILES.computeIfAbsent(file.toAbsolutePath().normalize(), Reloading::new);
+	}
+
+	private static void add(final List<String> normalized, final String iban, final String location) {
+		if (iban == null || iban.isBlank()) {
+			return;
+		}
+		final StringBuilder sb = new StringBuilder(iban.length());
+		for (int i = 0; i < iban.length(); i++) {
+			final char c = iban.charAt(i);
+			if (Character.isWhitespace(c)) {
+				continue;
+			} else if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+				sb.append(c);
+			} else if (c >= 'a' && c <= 'z') {
+				sb.append((char) (c - 'a' + 'A'));
+			} else {
+				LOGGER.warn("{}invalid personal IBAN '{}' skipped.",
+						location == null ? "" : location + ": ", iban.trim());
+				return;
+			}
+		}
+		normalized.add(sb.toString());
+	}
+
+	private static RecipientRegistry build(final List<String> normalized) {
+		if (normalized.isEmpty()) {
+			return EMPTY;
+		}
+		final String[] sorted = normalized.toArray(new String[0]);
+		Arrays.sort(sorted);
+		int unique = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (unique == 0 || !sorted[i].equals(sorted[unique - 1])) {
+				sorted[unique++] = sorted[i];
+			}
+		}
+		return new RecipientRegistry(unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique));
+	}
+
+	/**
+	 *
+	 * @param iban - IBAN of creditor, spaces and case are ignored
+	 * @return true when IBAN is in registry
+	 */
+	public boolean individual(final CharSequence iban) {
+		if (iban == null || offsets.length == 1) {
+			return false;
+		}
+		final long hash = hash(iban);
+		final int h1 = (int) hash;
+		final int h2 = (int) (hash >>> 32) | 1;
+		for (int k = 0; k < PROBES; k++) {
+			final int bit = (h1 + k * h2) & bloomMask;
+			if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		int low = 0;
+		int high = offsets.length - 2;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int cmp = compare(middle, iban);
+			if (cmp < 0) {
+				low = middle + 1;
+			} else if (cmp > 0) {
+				high = middle - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return number of unique IBAN's
+	 */
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Compares packed IBAN with normalized value of iban
+	 */
+	private int compare(final int index, final CharSequence iban) {
+		int position = offsets[index];
+		final int end = offsets[index + 1];
+		for (int i = 0; i < iban.length(); i++) {
+			final char c = iban.charAt(i);
+			if (Character.isWhitespace(c)) {
+				continue;
+			}
+			if (position == end) {
+				return -1;
+			}
+			final int diff = ibans[position++] - upper(c);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return position == end ? 0 : 1;
+	}
+
+	/**
+	 * FNV-1a of normalized characters with murmur3 finalizer
+	 */
+	private static long hash(final CharSequence iban) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < iban.length(); i++) {
+			final char c = iban.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				hash ^= upper(c);
+				hash *= 0x100000001b3L;
+			}
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private static int upper(final char c) {
+		return c >= 'a' && c <= 'z' ? c - 'a' + 'A' : c;
+	}
+
+	/**
+	 * Registry file shared between conversions. Modification time and size of file are checked
+	 * on every {@link #current()} call (once per conversion, not per transfer), changed file is
+	 * loaded to new registry which replaces previous one, conversions already running keep
+	 * registry they have started with. When changed file can not be read previous registry is used.
+	 */
+	public static final class Reloading {
+
+		private final Path file;
+		private volatile Loaded loaded;
+
+		private Reloading(final Path file) {
+			this.file = file;
+		}
+
+		/**
+		 * @return registry of current version of file
+		 * @throws IOException when file can not be read and was never loaded
+		 */
+		public RecipientRegistry current() throws IOException {
+			final Loaded last = loaded;
+			final BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			} catch (IOException ioe) {
+				if (last == null) {
+					throw ioe;
+				}
+				LOGGER.error("Unable to read {}, {} personal IBAN's loaded before are used: {}",
+						file, last.registry.size(), ioe.getMessage());
+				return last.registry;
+			}
+			if (last != null && last.unchanged(attributes)) {
+				return last.registry;
+			}
+			return reload(attributes);
+		}
+
+		private synchronized RecipientRegistry reload(final BasicFileAttributes attributes) throws IOException {
+			final Loaded last = loaded;
+			if (last != null && last.unchanged(attributes)) {
+				// Reloaded by another thread
+				return last.registry;
+			}
+			try {
+				final RecipientRegistry registry = load(file);
+				loaded = new Loaded(registry, attributes.lastModifiedTime(), attributes.size());
+				if (last != null) {
+					LOGGER.info("{} reloaded, {} personal IBAN's.", file, registry.size());
+				}
+				return registry;
+			} catch (IOException ioe) {
+				if (last == null) {
+					throw ioe;
+				}
+				LOGGER.error("Unable to reload {}, {} personal IBAN's loaded before are used: {}",
+						file, last.registry.size(), ioe.getMessage());
+				return last.registry;
+			}
+		}
+
+		public Path path() {
+			return file;
+		}
+
+	}
+
+	private static final class Loaded {
+		private final RecipientRegistry registry;
+		private final FileTime modified;
+		private final long size;
+
+		Loaded(final RecipientRegistry registry, final FileTime modified, final long size) {
+			this.registry = registry;
+			this.modified = modified;
+			this.size = size;
+		}
+
+		boolean unchanged(final BasicFileAttributes attributes) {
+			return size == attributes.size() && modified.equals(attributes.lastModifiedTime());
+		}
+	}
+
+}
@@ -0,0 +1,754 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import jakarta.xml.bind.ValidationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.PropertyConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import solutions.a2.iso20022.camt053.v001_02.BalanceType12Code;
+import solutions.a2.iso20022.camt053.v001_02.BankTransactionCodeStructure4;
+import solutions.a2.iso20022.camt053.v001_02.CashAccount20;
+import solutions.a2.iso20022.camt053.v001_02.CashBalance3;
+import solutions.a2.iso20022.camt053.v001_02.CreditDebitCode;
+import solutions.a2.iso20022.camt053.v001_02.DateAndDateTimeChoice;
+import solutions.a2.iso20022.camt053.v001_02.EntryDetails1;
+import solutions.a2.iso20022.camt053.v001_02.EntryStatus2Code;
+import solutions.a2.iso20022.camt053.v001_02.EntryTransaction2;
+import solutions.a2.iso20022.camt053.v001_02.PartyIdentification32;
+import solutions.a2.iso20022.camt053.v001_02.ReportEntry2;
+import solutions.a2.iso20022.camt053.v001_02.StructuredRemittanceInformation7;
+import solutions.a2.iso20022.si.revolut.ConversionMetrics.Phase;
+
+/**
+ * Converts camt.053.001.02 of any bank to csv with columns of Revolut statement export, which
+ * is accepted by BankToCustomerStatement. Document is walked with StAX, every Acct, Bal and
+ * Ntry of Stmt is unmarshalled separately. Revolut statement lists newest row first and every
+ * row has balance after it, camt.053 lists entries from oldest and has only opening and closing
+ * balance, so rows of Stmt are spooled to temporary file and written in reverse order with
+ * balances calculated back from closing balance. Memory usage does not depend on number of
+ * entries. Every Stmt is written to own file, first to output file, next to &lt;output&gt;-2.csv,
+ * &lt;output&gt;-3.csv...
+ */
+public class RevolutStatement {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RevolutStatement.class);
+
+	private static final String CAMT053_NS = "urn:iso:std:iso:20022:tech:xsd:camt.053.001.02";
+	private static final CSVFormat ROW_FORMAT = CSVFormat.DEFAULT;
+	private static final byte[] RECORD_SEPARATOR = "\r\n".getBytes(StandardCharsets.US_ASCII);
+	private static final String ZERO_FEE = "0.00";
+	private static final int SPOOL_BUFFER_SIZE = 1 << 16;
+
+	private final String fileName;
+	private final String timeZoneName;
+	private final ZoneId zoneId;
+	private final ConversionMetrics metrics = ConversionMetrics.reverse();
+	private OutputSink sink = OutputSink.DEFAULT;
+	private boolean validate = false;
+
+	/**
+	 *
+	 * @param timeZoneName - time zone of Date started and Date completed columns, used for
+	 *                       header and for entries with date and time
+	 * @param fileName     - camt.053.001.02 file, .gz is decompressed
+	 */
+	public RevolutStatement(final String timeZoneName, final String fileName) {
+		this.timeZoneName = timeZoneName;
+		this.zoneId = ZoneId.of(timeZoneName);
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Configures output of write(), csv is always written in UTF-8
+	 */
+	public void sink(final OutputSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Validates camt.053.001.02 against XSD while it is read, invalid document is rejected
+	 * with ValidationException which lists errors with line and column
+	 */
+	public void validate(final boolean validate) {
+		this.validate = validate;
+	}
+
+	/**
+	 *
+	 * @param outputFile - csv file for first Stmt, number of Stmt is appended for others
+	 * @return written files, one for every Stmt
+	 * @throws IOException
+	 * @throws JAXBException
+	 */
+	public List<Path> write(final String outputFile) throws IOException, JAXBException {
+		final List<Path> written = new ArrayList<>();
+		boolean converted = false;
+		try {
+			final long rows = convert(outputFile, written);
+			metrics.rows(rows);
+			metrics.converted();
+			converted = true;
+			return written;
+		} catch (ValidationException ve) {
+			metrics.rejected(1);
+			metrics.failed();
+			throw ve;
+		} catch (IOException | JAXBException e) {
+			metrics.failed();
+			throw e;
+		} catch (RuntimeException re) {
+			// Required element of statement is missing
+			metrics.rejected(1);
+			metrics.failed();
+			throw re;
+		} finally {
+			if (!converted) {
+				// Statements of invalid document are not kept
+				for (Path path : written) {
+					Files.deleteIfExists(path);
+					Files.deleteIfExists(path.resolveSibling(path.getFileName() + OutputSink.DIGEST_SUFFIX));
+				}
+			}
+		}
+	}
+
+	private long convert(final String outputFile, final List<Path> written) throws IOException, JAXBException {
+		// Unmarshaller validates only fragment, whole document is validated by reader
+		final ValidationErrors errors = validate ? new ValidationErrors(fileName) : null;
+		final Unmarshaller unmarshaller = JaxbContexts.camt053().borrowUnmarshaller();
+		final XMLInputFactory xif = XMLInputFactory.newInstance();
+		xif.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		xif.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		metrics.bytesIn(ConversionMetrics.size(fileName));
+		long rows = 0;
+		// Phase times are summed locally and recorded once per file
+		long writeNanos = 0;
+		final long started = System.nanoTime();
+		Spool spool = null;
+		try (InputStream is = open(fileName)) {
+			final XMLStreamReader reader = validate ?
+					StreamValidation.reader(xif.createXMLStreamReader(is), JaxbContexts.camt053().schema(), errors) :
+					xif.createXMLStreamReader(is);
+			boolean document = false;
+			int depth = 0;
+			int statementDepth = -1;
+			while (reader.hasNext()) {
+				if (reader.isStartElement()) {
+					final boolean camt053 = CAMT053_NS.equals(reader.getNamespaceURI());
+					if (spool != null && depth == statementDepth && camt053) {
+						// After unmarshal reader points to event following end tag
+						if ("Ntry".equals(reader.getLocalName())) {
+							spool.entry(unmarshaller.unmarshal(reader, ReportEntry2.class).getValue());
+							if (errors != null) {
+								// Invalid Ntry is not written
+								errors.check();
+							}
+							continue;
+						} else if ("Bal".equals(reader.getLocalName())) {
+							spool.balance(unmarshaller.unmarshal(reader, CashBalance3.class).getValue());
+							continue;
+						} else if ("Acct".equals(reader.getLocalName())) {
+							spool.account(unmarshaller.unmarshal(reader, CashAccount20.class).getValue());
+							continue;
+						}
+					}
+					depth++;
+					if (camt053 && "BkToCstmrStmt".equals(reader.getLocalName())) {
+						document = true;
+					} else if (document && camt053 && "Stmt".equals(reader.getLocalName())) {
+						spool = new Spool(outputFile);
+						statementDepth = depth;
+					}
+				} else if (reader.isEndElement()) {
+					if (spool != null && depth == statementDepth) {
+						final long writeStarted = System.nanoTime();
+						written.add(spool.write(statementName(outputFile, written.size() + 1)));
+						writeNanos += System.nanoTime() - writeStarted;
+						rows += spool.rows;
+						spool.close();
+						spool = null;
+					}
+					depth--;
+				}
+				reader.next();
+			}
+			reader.close();
+			if (errors != null) {
+				errors.check();
+			}
+			if (!document) {
+				throw new JAXBException("Wrong camt.053.001.02 format!!!");
+			}
+			metrics.phaseNanos(Phase.READ, System.nanoTime() - started - writeNanos);
+			metrics.phaseNanos(Phase.WRITE, writeNanos);
+			return rows;
+		} catch (XMLStreamException xse) {
+			throw new JAXBException(xse);
+		} finally {
+			if (spool != null) {
+				spool.close();
+			}
+			JaxbContexts.camt053().release(unmarshaller);
+		}
+	}
+
+	private static InputStream open(final String fileName) throws IOException {
+		final InputStream is = new BufferedInputStream(Files.newInputStream(Paths.get(fileName)), SPOOL_BUFFER_SIZE);
+		if (StringUtils.endsWithIgnoreCase(fileName, ".gz")) {
+			return new GZIPInputStream(is, SPOOL_BUFFER_SIZE);
+		} else {
+			return is;
+		}
+	}
+
+	/**
+	 * @return outputFile for first Stmt, for next statements number is appended to name
+	 */
+	static String statementName(final String outputFile, final int number) {
+		if (number == 1) {
+			return outputFile;
+		} else if (StringUtils.endsWithIgnoreCase(outputFile, ".csv")) {
+			return outputFile.substring(0, outputFile.length() - 4) + "-" + number + ".csv";
+		} else {
+			return outputFile + "-" + number;
+		}
+	}
+
+	/**
+	 * Rows of one Stmt in order of entries. Every row is stored as csv record without balance
+	 * and amount, lengths of record and amount are written before and after them, so file can be
+	 * read from either end.
+	 */
+	private final class Spool implements Closeable {
+
+		private final Path file;
+		private final DataOutputStream out;
+		private String account = "";
+		private BigDecimal opening;
+		private BigDecimal closing;
+		private BigDecimal total = BigDecimal.ZERO;
+		private long rows = 0;
+		private long skipped = 0;
+		private String firstCompleted;
+		private String lastCompleted;
+
+		Spool(final String outputFile) throws IOException {
+			final Path output = Paths.get(outputFile).toAbsolutePath();
+			file = Files.createTempFile(output.getParent(), output.getFileName().toString() + ".", ".spool");
+			out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), SPOOL_BUFFER_SIZE));
+		}
+
+		void account(final CashAccount20 acct) {
+			if (acct.getId() != null && acct.getId().getIBAN() != null) {
+				account = acct.getId().getIBAN();
+			} else if (acct.getId() != null && acct.getId().getOthr() != null) {
+				account = acct.getId().getOthr().getId();
+			}
+		}
+
+		/**
+		 * Opening (OPBD, PRCD) and closing (CLBD) booked balances, other balances are ignored
+		 */
+		void balance(final CashBalance3 bal) {
+			if (bal.getTp() == null || bal.getTp().getCdOrPrtry() == null || bal.getTp().getCdOrPrtry().getCd() == null) {
+				return;
+			}
+			final BalanceType12Code code = bal.getTp().getCdOrPrtry().getCd();
+			final BigDecimal value = signed(bal.getAmt().getValue(), bal.getCdtDbtInd());
+			if ((code == BalanceType12Code.OPBD || code == BalanceType12Code.PRCD) && opening == null) {
+				opening = value;
+			} else if (code == BalanceType12Code.CLBD) {
+				closing = value;
+			}
+		}
+
+		/**
+		 * Booked entry becomes one row, pending and information entries are skipped
+		 */
+		void entry(final ReportEntry2 ntry) throws IOException {
+			if (ntry.getSts() != EntryStatus2Code.BOOK) {
+				skipped++;
+				return;
+			}
+			final BigDecimal amount = signed(ntry.getAmt().getValue(), ntry.getCdtDbtInd());
+			final EntryTransaction2 tx = firstTransaction(ntry);
+			final DateAndDateTimeChoice bookgDt = ntry.getBookgDt() == null ? ntry.getValDt() : ntry.getBookgDt();
+			final DateAndDateTimeChoice valDt = ntry.getValDt() == null ? bookgDt : ntry.getValDt();
+			if (bookgDt == null) {
+				throw new IOException("Ntry " + id(ntry, tx) + " in " + fileName + " has neither BookgDt nor ValDt!");
+			}
+			final BigDecimal origAmount;
+			final String origCurrency;
+			if (tx != null && tx.getAmtDtls() != null && tx.getAmtDtls().getInstdAmt() != null) {
+				origAmount = signed(tx.getAmtDtls().getInstdAmt().getAmt().getValue(), ntry.getCdtDbtInd());
+				origCurrency = tx.getAmtDtls().getInstdAmt().getAmt().getCcy();
+			} else {
+				origAmount = amount;
+				origCurrency = ntry.getAmt().getCcy();
+			}
+			final String completed = date(bookgDt);
+			final byte[] record = ROW_FORMAT.format(
+					date(valDt),								//Date started
+					completed,									//Date completed
+					id(ntry, tx),								//ID
+					type(ntry, tx),								//Type
+					description(ntry),							//Description
+					reference(ntry, tx),						//Reference
+					payer(ntry.getCdtDbtInd(), tx),				//Payer
+					"",											//Card number
+					origCurrency,								//Orig currency
+					origAmount.toPlainString(),					//Orig amount
+					ntry.getAmt().getCcy(),						//Payment currency
+					amount.toPlainString(),						//Amount
+					ZERO_FEE									//Fee
+			).getBytes(StandardCharsets.UTF_8);
+			final byte[] value = amount.toPlainString().getBytes(StandardCharsets.US_ASCII);
+			out.writeInt(record.length);
+			out.writeShort(value.length);
+			out.write(record);
+			out.write(value);
+			out.writeShort(value.length);
+			out.writeInt(record.length);
+			total = total.add(amount);
+			if (rows++ == 0) {
+				firstCompleted = completed;
+			}
+			lastCompleted = completed;
+		}
+
+		/**
+		 * Writes header and spooled rows from newest to oldest with balance after every row.
+		 * Entries of camt.053 are usually listed from oldest, statement which is listed from
+		 * newest (as one converted from Revolut csv) is detected by booking dates.
+		 *
+		 * @return committed file
+		 */
+		Path write(final String outputFile) throws IOException {
+			out.close();
+			if (skipped > 0) {
+				LOGGER.info("Skipped {} entries of {} in {} which are not booked.", skipped, account, fileName);
+			}
+			final BigDecimal end;
+			if (closing != null) {
+				end = closing;
+				if (opening != null && opening.add(total).compareTo(closing) != 0) {
+					LOGGER.warn("Entries of {} in {} do not add up to closing balance {}, difference {}, " +
+							"balances are calculated back from closing balance.",
+							account, fileName, closing, closing.subtract(opening.add(total)));
+				}
+			} else if (opening != null) {
+				end = opening.add(total);
+			} else {
+				throw new IOException("Statement of " + account + " in " + fileName + " has neither opening nor closing booked balance!");
+			}
+			final boolean newestFirst = rows > 1 && lastCompleted.compareTo(firstCompleted) < 0;
+			try (OutputSink.Output output = sink.open(outputFile);
+					SpoolReader in = newestFirst ? new Forward(file) : new Backward(file)) {
+				final OutputStream os = output.stream();
+				os.write(ROW_FORMAT.format(
+						"Date started (" + timeZoneName + ")", "Date completed (" + timeZoneName + ")",
+						"ID", "Type", "Description", "Reference", "Payer", "Card number",
+						"Orig currency", "Orig amount", "Payment currency", "Amount", "Fee", "Balance")
+						.getBytes(StandardCharsets.UTF_8));
+				os.write(RECORD_SEPARATOR);
+				BigDecimal balance = end;
+				while (in.next()) {
+					os.write(in.buffer, in.offset, in.length);
+					os.write(',');
+					os.write(balance.toPlainString().getBytes(StandardCharsets.US_ASCII));
+					os.write(RECORD_SEPARATOR);
+					balance = balance.subtract(in.amount);
+				}
+				final long flushStarted = System.nanoTime();
+				output.commit();
+				metrics.phase(Phase.FLUSH, flushStarted);
+				metrics.bytesOut(output.bytes());
+				LOGGER.debug("{} rows of {} written to {}.", rows, account, output.path());
+				return output.path();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				out.close();
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		}
+
+	}
+
+	/**
+	 * Reads rows of spool file, row is in buffer from offset to offset + length
+	 */
+	private abstract static class SpoolReader implements Closeable {
+
+		static final int LENGTHS = Integer.BYTES + Short.BYTES;
+
+		byte[] buffer;
+		int offset;
+		int length;
+		BigDecimal amount;
+
+		/**
+		 * @return false when there are no more rows
+		 */
+		abstract boolean next() throws IOException;
+
+	}
+
+	/**
+	 * Reads rows from first to last
+	 */
+	private static final class Forward extends SpoolReader {
+
+		private final DataInputStream in;
+		private long remaining;
+
+		Forward(final Path file) throws IOException {
+			remaining = Files.size(file);
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), SPOOL_BUFFER_SIZE));
+			buffer = new byte[SPOOL_BUFFER_SIZE];
+		}
+
+		@Override
+		boolean next() throws IOException {
+			if (remaining == 0) {
+				return false;
+			}
+			final int recordLength = in.readInt();
+			final int valueLength = in.readShort();
+			// Lengths after amount are read with row and ignored
+			if (recordLength + valueLength + LENGTHS > buffer.length) {
+				buffer = new byte[recordLength + valueLength + LENGTHS];
+			}
+			in.readFully(buffer, 0, recordLength + valueLength + LENGTHS);
+			offset = 0;
+			length = recordLength;
+			amount = new BigDecimal(new String(buffer, recordLength, valueLength, StandardCharsets.US_ASCII));
+			remaining -= 2 * LENGTHS + recordLength + valueLength;
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+	}
+
+	/**
+	 * Reads rows from last to first, window of file is kept in buffer
+	 */
+	private static final class Backward extends SpoolReader {
+
+		private final FileChannel channel;
+		private ByteBuffer window = ByteBuffer.allocate(SPOOL_BUFFER_SIZE);
+		/** File position of first byte in window */
+		private long start;
+		/** File position after last unread byte */
+		private long position;
+
+		Backward(final Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+			position = channel.size();
+			start = position;
+			buffer = window.array();
+		}
+
+		@Override
+		boolean next() throws IOException {
+			if (position == 0) {
+				return false;
+			}
+			int index = back(LENGTHS);
+			final int valueLength = ((buffer[index] & 0xFF) << 8) | (buffer[index + 1] & 0xFF);
+			final int recordLength = ((buffer[index + 2] & 0xFF) << 24) | ((buffer[index + 3] & 0xFF) << 16) |
+					((buffer[index + 4] & 0xFF) << 8) | (buffer[index + 5] & 0xFF);
+			index = back(valueLength);
+			amount = new BigDecimal(new String(buffer, index, valueLength, StandardCharsets.US_ASCII));
+			// Record with lengths before it, so record stays in window
+			offset = back(LENGTHS + recordLength) + LENGTHS;
+			length = recordLength;
+			return true;
+		}
+
+		/**
+		 * Moves position length bytes back
+		 *
+		 * @return offset of these bytes in buffer
+		 */
+		private int back(final int length) throws IOException {
+			if (position - length < start) {
+				if (length > window.capacity()) {
+					window = ByteBuffer.allocate(length);
+					buffer = window.array();
+				}
+				final long from = Math.max(0, position - window.capacity());
+				window.clear();
+				window.limit((int) (position - from));
+				while (window.hasRemaining()) {
+					if (channel.read(window, from + window.position()) < 0) {
+						throw new IOException("Unexpected end of spool file!");
+					}
+				}
+				start = from;
+			}
+			position -= length;
+			return (int) (position - start);
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+	}
+
+	private static BigDecimal signed(final BigDecimal value, final CreditDebitCode cdtDbtInd) {
+		return cdtDbtInd == CreditDebitCode.DBIT ? value.abs().negate() : value;
+	}
+
+	private static EntryTransaction2 firstTransaction(final ReportEntry2 ntry) {
+		for (EntryDetails1 details : ntry.getNtryDtls()) {
+			if (!details.getTxDtls().isEmpty()) {
+				return details.getTxDtls().get(0);
+			}
+		}
+		return null;
+	}
+
+	private String date(final DateAndDateTimeChoice choice) {
+		final XMLGregorianCalendar xgc = choice.getDt() == null ? choice.getDtTm() : choice.getDt();
+		if (choice.getDt() != null || xgc.getTimezone() == DatatypeConstants.FIELD_UNDEFINED) {
+			return LocalDate.of(xgc.getYear(), xgc.getMonth(), xgc.getDay()).toString();
+		} else {
+			return xgc.toGregorianCalendar().toZonedDateTime().withZoneSameInstant(zoneId).toLocalDate().toString();
+		}
+	}
+
+	/**
+	 * Transaction ID of bank, 32 hex digits (Revolut ID without dashes) are returned as UUID
+	 */
+	private static String id(final ReportEntry2 ntry, final EntryTransaction2 tx) {
+		String id = null;
+		if (tx != null && tx.getRefs() != null) {
+			id = StringUtils.defaultIfBlank(tx.getRefs().getTxId(), tx.getRefs().getAcctSvcrRef());
+		}
+		id = StringUtils.defaultIfBlank(id, StringUtils.defaultIfBlank(ntry.getAcctSvcrRef(), ntry.getNtryRef()));
+		if (id == null) {
+			return "";
+		} else if (id.length() == 32 && StringUtils.containsOnly(id, "0123456789abcdefABCDEF")) {
+			return id.substring(0, 8) + "-" + id.substring(8, 12) + "-" + id.substring(12, 16) + "-" +
+					id.substring(16, 20) + "-" + id.substring(20);
+		} else {
+			return id;
+		}
+	}
+
+	/**
+	 * ISO bank transaction code as DOMAIN-FAMILY-SUBFAMILY, empty when only proprietary code is set
+	 */
+	private static String type(final ReportEntry2 ntry, final EntryTransaction2 tx) {
+		BankTransactionCodeStructure4 bkTxCd = tx == null ? null : tx.getBkTxCd();
+		if (bkTxCd == null || bkTxCd.getDomn() == null) {
+			bkTxCd = ntry.getBkTxCd();
+		}
+		if (bkTxCd == null || bkTxCd.getDomn() == null) {
+			return "";
+		} else if (bkTxCd.getDomn().getFmly() == null) {
+			return bkTxCd.getDomn().getCd();
+		} else {
+			return bkTxCd.getDomn().getCd() + "-" + bkTxCd.getDomn().getFmly().getCd() + "-" +
+					bkTxCd.getDomn().getFmly().getSubFmlyCd();
+		}
+	}
+
+	/**
+	 * Unstructured remittance information of all transactions, additional entry or transaction information
+	 */
+	private static String description(final ReportEntry2 ntry) {
+		final StringBuilder sb = new StringBuilder(64);
+		String additional = ntry.getAddtlNtryInf();
+		for (EntryDetails1 details : ntry.getNtryDtls()) {
+			for (EntryTransaction2 tx : details.getTxDtls()) {
+				if (tx.getRmtInf() != null) {
+					for (String ustrd : tx.getRmtInf().getUstrd()) {
+						if (sb.length() > 0) {
+							sb.append(' ');
+						}
+						sb.append(ustrd);
+					}
+				}
+				additional = StringUtils.defaultIfBlank(additional, tx.getAddtlTxInf());
+			}
+		}
+		return sb.length() > 0 ? sb.toString() : StringUtils.defaultString(additional);
+	}
+
+	/**
+	 * Creditor reference of structured remittance information, otherwise entry reference
+	 */
+	private static String reference(final ReportEntry2 ntry, final EntryTransaction2 tx) {
+		if (tx != null && tx.getRmtInf() != null) {
+			for (StructuredRemittanceInformation7 sri : tx.getRmtInf().getStrd()) {
+				if (sri.getCdtrRefInf() != null && StringUtils.isNotBlank(sri.getCdtrRefInf().getRef())) {
+					return sri.getCdtrRefInf().getRef();
+				}
+			}
+		}
+		return StringUtils.defaultString(ntry.getNtryRef());
+	}
+
+	/**
+	 * Counterparty: debtor of credit entry, creditor of debit entry
+	 */
+	private static String payer(final CreditDebitCode cdtDbtInd, final EntryTransaction2 tx) {
+		if (tx == null || tx.getRltdPties() == null) {
+			return "";
+		}
+		final PartyIdentification32 party = cdtDbtInd == CreditDebitCode.DBIT ?
+				tx.getRltdPties().getCdtr() : tx.getRltdPties().getDbtr();
+		return party == null ? "" : StringUtils.defaultString(party.getNm());
+	}
+
+	public static void main(String[] argv) {
+		// Check for valid log4j configuration
+		final String log4jConfig = System.getProperty("a2.log4j.configuration");
+		if (log4jConfig == null || "".equals(log4jConfig)) {
+			BasicConfigurator.configure();
+			LOGGER.warn("JVM argument -Da2.log4j.configuration not set!");
+		} else {
+			// Check that log4j configuration file exist
+			Path path = Paths.get(log4jConfig);
+			if (!Files.exists(path) || Files.isDirectory(path)) {
+				BasicConfigurator.configure();
+				LOGGER.error("JVM argument -Da2.log4j.configuration points to unknown file {}.", log4jConfig);
+			} else {
+				// Initialize log4j
+				PropertyConfigurator.configure(log4jConfig);
+			}
+		}
+
+		final Options options = new Options();
+
+		final Option optionFileName = new Option("s", "source-file", true,
+				"Full path to camt.053.001.02 statement (.xml or .xml.gz).");
+		optionFileName.setRequired(true);
+		options.addOption(optionFileName);
+
+		final Option optionOutput = new Option("o", "output-file", true,
+				"Revolut statement csv, when not set name of source file with .csv extension.");
+		optionOutput.setRequired(false);
+		options.addOption(optionOutput);
+
+		final Option optionTimeZone = new Option("t", "time-zone", true,
+				"Time zone of dates in csv, default - " + PropertiesManager.TZ + ".");
+		optionTimeZone.setRequired(false);
+		options.addOption(optionTimeZone);
+
+		final Option optionGzip = new Option("z", "gzip", false,
+				"Compress Revolut csv with gzip, .gz is appended to file name.");
+		optionGzip.setRequired(false);
+		options.addOption(optionGzip);
+
+		final Option optionDigest = new Option("d", "digest", false,
+				"Write SHA-256 digest of Revolut csv file to file with .sha256 extension.");
+		optionDigest.setRequired(false);
+		options.addOption(optionDigest);
+
+		final Option optionValidate = new Option("v", "validate", false,
+				"Validate camt.053.001.02 file against XSD, invalid file is not converted.");
+		optionValidate.setRequired(false);
+		options.addOption(optionValidate);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cmd = null;
+		String timeZoneName = PropertiesManager.TZ;
+		try {
+			cmd = parser.parse(options, argv);
+			if (cmd.hasOption("t")) {
+				timeZoneName = cmd.getOptionValue("t");
+				ZoneId.of(timeZoneName);
+			}
+		} catch (org.apache.commons.cli.ParseException | java.time.DateTimeException pe) {
+			LOGGER.error(pe.getMessage());
+			formatter.printHelp(RevolutStatement.class.getCanonicalName(), options);
+			System.exit(1);
+		}
+
+		final String fileName = cmd.getOptionValue("s");
+		final String outputFile = cmd.hasOption("o") ?
+				cmd.getOptionValue("o") : SepaUtils.getOutputName(fileName, true);
+
+		try {
+			final RevolutStatement statement = new RevolutStatement(timeZoneName, fileName);
+			statement.sink(new OutputSink(false, cmd.hasOption("z"), cmd.hasOption("d")));
+			statement.validate(cmd.hasOption("v"));
+			statement.write(outputFile);
+		} catch (IOException | JAXBException e) {
+			LOGGER.error(e.getMessage());
+			final StringWriter sw = new StringWriter();
+			final PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			LOGGER.error(sw.toString());
+		}
+	}
+
+}
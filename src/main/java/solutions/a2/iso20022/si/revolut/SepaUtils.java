@@ -17,8 +17,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.Arrays;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 
 import org.apache.commons.lang3.StringUtils;
@@ -69,6 +69,9 @@ public class SepaUtils {
 	final Button btnInput = new Button("");
 	final Button btnOutput = new Button("");
 	boolean runMode;
+	// List from Setup is parsed again only when it is changed
+	private String setupIbansList;
+	private RecipientRegistry setupIbans = RecipientRegistry.EMPTY;
 
 	SepaUtils() {
 		Screen screen = null;
@@ -168,6 +171,14 @@ public class SepaUtils {
 		tbPersonalIbans.setText(pm.personalIbans());
 		panelSetup.addComponent(tbPersonalIbans);
 		//Row 6
+		final Label lblPersonalIbansFile = new Label("Personal IBAN's file");
+		lblPersonalIbansFile.setPreferredSize(LABEL_SIZE);
+		panelSetup.addComponent(lblPersonalIbansFile);
+		final TextBox tbPersonalIbansFile = new TextBox();
+		tbPersonalIbansFile.setPreferredSize(TEXTBOX_SIZE);
+		tbPersonalIbansFile.setText(StringUtils.defaultString(pm.personalIbansFile()));
+		panelSetup.addComponent(tbPersonalIbansFile);
+		//Row 7
 		final Button btnCancel = new Button("Cancel");
 		btnCancel.setPreferredSize(BUTTON_SIZE);
 		btnCancel.addListener(button -> {
@@ -181,11 +192,35 @@ public class SepaUtils {
 		final Button btnSave = new Button("Save");
 		btnSave.setPreferredSize(BUTTON_SIZE);
 		btnSave.addListener(button -> {
-			pm.setPartyInfo(tbPartyName.getText(), tbIban.getText(),
-					tbAddrLine1.getText(), tbAddrLine2.getText());
+			final AccountValidator.Result ibanResult = AccountValidator.iban(tbIban.getText());
+			if (!ibanResult.valid()) {
+				new MessageDialogBuilder()
+					.setTitle("Invalid IBAN!")
+					.setText("IBAN " + tbIban.getText() + ": " + ibanResult.description())
+					.addButton(MessageDialogButton.Close)
+					.build()
+					.showDialog(gui);
+				window.setFocusedInteractable(tbIban);
+				return;
+			}
+			if (StringUtils.isNotBlank(tbPersonalIbansFile.getText()) &&
+					!Files.isReadable(Paths.get(tbPersonalIbansFile.getText().trim()))) {
+				new MessageDialogBuilder()
+					.setTitle("Personal IBAN's file not found!")
+					.setText("Unable to read " + tbPersonalIbansFile.getText().trim())
+					.addButton(MessageDialogButton.Close)
+					.build()
+					.showDialog(gui);
+				window.setFocusedInteractable(tbPersonalIbansFile);
+				return;
+			}
+			// Personal IBAN's are set first, setPartyInfo stores all properties
 			if (StringUtils.isNotBlank(tbPersonalIbans.getText())) {
 				pm.personalIbans(tbPersonalIbans.getText());
 			}
+			pm.personalIbansFile(tbPersonalIbansFile.getText().trim());
+			pm.setPartyInfo(tbPartyName.getText(), tbIban.getText(),
+					tbAddrLine1.getText(), tbAddrLine2.getText());
 			setPanelMenuVisible();
 		});
 		panelSetup.addComponent(btnSave);
@@ -295,9 +330,8 @@ public class SepaUtils {
 					try {
 						if (runMode) {
 							//CAIN
-							final List<String> personalIbans = Arrays.asList(pm.personalIbans().split(","));
 							CreditTransferInitiation cti = new CreditTransferInitiation(lblInput.getText());
-							cti.write(lblOutput.getText(), personalIbans);
+							cti.write(lblOutput.getText(), personalIbans());
 						} else {
 							//CAMT
 							BankToCustomerStatement revolut = new BankToCustomerStatement(
@@ -382,7 +416,25 @@ public class SepaUtils {
 		window.setComponent(panelRun);
 	}
 
-	public static String getOutputName(final String sourceFile, final boolean isCsv) {
+	/**
+	 * File from Setup is shared registry reloaded when file is changed and takes precedence
+	 * over list from Setup
+	 */
+	private RecipientRegistry personalIbans() throws IOException {
+		if (StringUtils.isNotBlank(pm.personalIbansFile())) {
+			return RecipientRegistry.file(Paths.get(pm.personalIbansFile())).current();
+		}
+		final String list = StringUtils.defaultString(pm.personalIbans());
+		if (!list.equals(setupIbansList)) {
+			setupIbans = RecipientRegistry.parse(list);
+			setupIbansList = list;
+		}
+		return setupIbans;
+	}
+
+	public static String getOutputName(final String source, final boolean isCsv) {
+		// statement.csv.gz gives statement.xml
+		final String sourceFile = StringUtils.removeEndIgnoreCase(source, ".gz");
 		final int lastDot = StringUtils.lastIndexOf(sourceFile, ".");
 		if (lastDot < 0 || lastDot >= sourceFile.length()) {
 			return sourceFile + (isCsv ? ".csv" : ".xml");
@@ -393,6 +445,10 @@ public class SepaUtils {
 
 	public static void main(String[] args) {
 		PropertyConfigurator.configure(SepaUtils.class.getResourceAsStream("/log4j.properties"));
+		if (Boolean.getBoolean(JaxbContexts.WARMUP_PROPERTY)) {
+			// Build JAXB contexts while terminal and UI are starting
+			JaxbContexts.warmUp();
+		}
 		final SepaUtils su = new SepaUtils();
 		su.start();
 	}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Newest converted Revolut statement row per account and currency, kept between incremental
+ * runs of BankToCustomerStatement in properties file, one line per account:
+ * <pre>
+ * LT601010012345678901.EUR=&lt;ID&gt;,&lt;Date completed&gt;,&lt;Balance in minor units&gt;,&lt;Sequence number&gt;
+ * </pre>
+ * Sequence number is missing in checkpoints written before it was introduced and is read as 0.
+ */
+public class StatementCheckpoint {
+
+	private final Path file;
+	private final Properties props = new Properties();
+
+	private StatementCheckpoint(final Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * @param file - checkpoint file, it does not need to exist
+	 */
+	public static StatementCheckpoint load(final Path file) throws IOException {
+		final StatementCheckpoint checkpoint = new StatementCheckpoint(file);
+		if (Files.exists(file)) {
+			try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				checkpoint.props.load(reader);
+			}
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * @return newest converted row or null when statement of account was never converted
+	 */
+	public Entry get(final String iban, final String currency) throws IOException {
+		final String value = props.getProperty(key(iban, currency));
+		if (value == null) {
+			return null;
+		}
+		final String[] fields = StringUtils.split(value, ',');
+		try {
+			if (fields.length != 3 && fields.length != 4) {
+				throw new IllegalArgumentException(value);
+			}
+			return new Entry(fields[0], LocalDate.parse(fields[1]), Long.parseLong(fields[2]),
+					fields.length == 4 ? Long.parseLong(fields[3]) : 0);
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new IOException("Wrong checkpoint of " + key(iban, currency) + " in " + file + ": " + value, e);
+		}
+	}
+
+	public void put(final String iban, final String currency, final Entry entry) {
+		props.setProperty(key(iban, currency),
+				entry.id + "," + entry.completed + "," + entry.balance + "," + entry.sequence);
+	}
+
+	/**
+	 * Writes checkpoint to temporary file and moves it over previous checkpoint
+	 */
+	public void store() throws IOException {
+		final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			props.store(writer, "Revolut statement checkpoint");
+		}
+		OutputSink.commit(temp, file);
+	}
+
+	private static String key(final String iban, final String currency) {
+		return StringUtils.deleteWhitespace(StringUtils.upperCase(iban)) + "." + currency;
+	}
+
+	public static final class Entry {
+
+		private final String id;
+		private final LocalDate completed;
+		private final long balance;
+		private final long sequence;
+
+		/**
+		 *
+		 * @param id        - ID of newest converted row
+		 * @param completed - Date completed of newest converted row
+		 * @param balance   - Balance after newest converted row in minor units
+		 * @param sequence  - sequence number of statement which contains newest converted row
+		 */
+		public Entry(final String id, final LocalDate completed, final long balance, final long sequence) {
+			this.id = id;
+			this.completed = completed;
+			this.balance = balance;
+			this.sequence = sequence;
+		}
+
+		public String id() {
+			return id;
+		}
+
+		public LocalDate completed() {
+			return completed;
+		}
+
+		public long balance() {
+			return balance;
+		}
+
+		public long sequence() {
+			return sequence;
+		}
+
+	}
+
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Columnar in-memory representation of Revolut statement: dates are stored as epoch days,
+ * money columns as long minor units and text columns are dictionary-encoded.
+ * Rows are kept in statement order (newest first).
+ */
+public class StatementColumns {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private int size;
+	private int[] started;
+	private int[] completed;
+	private long[] amount;
+	private long[] fee;
+	private long[] balance;
+	private final DictionaryColumn id;
+	private final DictionaryColumn reference;
+	private final DictionaryColumn description;
+
+	StatementColumns() {
+		size = 0;
+		started = new int[INITIAL_CAPACITY];
+		completed = new int[INITIAL_CAPACITY];
+		amount = new long[INITIAL_CAPACITY];
+		fee = new long[INITIAL_CAPACITY];
+		balance = new long[INITIAL_CAPACITY];
+		id = new DictionaryColumn();
+		reference = new DictionaryColumn();
+		description = new DictionaryColumn();
+	}
+
+	/**
+	 *
+	 * @param records - Revolut statement records
+	 * @param layout  - column indexes resolved from statement header
+	 * @return loaded statement
+	 * @throws ParseException
+	 */
+	static StatementColumns load(
+			final Iterable<CSVRecord> records, final Layout layout) throws ParseException {
+		return load(records, layout, null, null);
+	}
+
+	/**
+	 *
+	 * @param stopId - ID of row where load stops (row is not loaded), null to load all rows
+	 * @param known  - rows with IDs in index are skipped, null to load all rows
+	 */
+	static StatementColumns load(
+			final Iterable<CSVRecord> records, final Layout layout,
+			final String stopId, final TransactionIndex known) throws ParseException {
+		final StatementColumns columns = new StatementColumns();
+		for (CSVRecord record : records) {
+			final String id = layout.id(record);
+			if (stopId != null && stopId.equals(id)) {
+				break;
+			}
+			if (known != null && known.contains(id)) {
+				continue;
+			}
+			columns.add(record, layout);
+		}
+		columns.trim();
+		return columns;
+	}
+
+	void add(final CSVRecord record, final Layout layout) throws ParseException {
+		if (size == started.length) {
+			final int capacity = size + (size >> 1);
+			started = Arrays.copyOf(started, capacity);
+			completed = Arrays.copyOf(completed, capacity);
+			amount = Arrays.copyOf(amount, capacity);
+			fee = Arrays.copyOf(fee, capacity);
+			balance = Arrays.copyOf(balance, capacity);
+		}
+		started[size] = layout.started(record);
+		completed[size] = layout.completed(record);
+		amount[size] = layout.amount(record);
+		fee[size] = layout.fee(record);
+		balance[size] = layout.balance(record);
+		id.add(layout.id(record));
+		reference.add(layout.reference(record));
+		description.add(layout.description(record));
+		size++;
+	}
+
+	/**
+	 * Releases unused capacity and dictionary lookup maps after load
+	 */
+	void trim() {
+		started = Arrays.copyOf(started, size);
+		completed = Arrays.copyOf(completed, size);
+		amount = Arrays.copyOf(amount, size);
+		fee = Arrays.copyOf(fee, size);
+		balance = Arrays.copyOf(balance, size);
+		id.trim();
+		reference.trim();
+		description.trim();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int started(final int row) {
+		return started[row];
+	}
+
+	public int completed(final int row) {
+		return completed[row];
+	}
+
+	public long amount(final int row) {
+		return amount[row];
+	}
+
+	public long fee(final int row) {
+		return fee[row];
+	}
+
+	public long balance(final int row) {
+		return balance[row];
+	}
+
+	public String id(final int row) {
+		return id.get(row);
+	}
+
+	public String reference(final int row) {
+		return reference.get(row);
+	}
+
+	public String description(final int row) {
+		return description.get(row);
+	}
+
+	/**
+	 * Column indexes of Revolut statement, resolved once from header
+	 */
+	public static class Layout {
+
+		private final int started;
+		private final int completed;
+		private final int id;
+		private final int reference;
+		private final int description;
+		private final int amount;
+		private final int fee;
+		private final int balance;
+
+		/**
+		 *
+		 * @param headerMap    - header of Revolut statement, as returned by CSVParser.getHeaderMap()
+		 * @param timeZoneName - time zone in "Date started" and "Date completed" column names
+		 * @throws IOException when required column is missing
+		 */
+		public Layout(final Map<String, Integer> headerMap, final String timeZoneName) throws IOException {
+			started = index(headerMap, "Date started (" + timeZoneName + ")");
+			completed = index(headerMap, "Date completed (" + timeZoneName + ")");
+			id = index(headerMap, "ID");
+			reference = index(headerMap, "Reference");
+			description = index(headerMap, "Description");
+			amount = index(headerMap, "Amount");
+			fee = index(headerMap, "Fee");
+			balance = index(headerMap, "Balance");
+		}
+
+		private static int index(final Map<String, Integer> headerMap, final String column) throws IOException {
+			final Integer index = headerMap == null ? null : headerMap.get(column);
+			if (index == null) {
+				throw new IOException("Column '" + column + "' not found in Revolut statement!");
+			}
+			return index;
+		}
+
+		public int started(final CSVRecord record) throws ParseException {
+			return epochDay(record.get(started));
+		}
+
+		public int completed(final CSVRecord record) throws ParseException {
+			return epochDay(record.get(completed));
+		}
+
+		public String id(final CSVRecord record) {
+			return record.get(id);
+		}
+
+		public String reference(final CSVRecord record) {
+			return record.get(reference);
+		}
+
+		public String description(final CSVRecord record) {
+			return record.get(description);
+		}
+
+		public long amount(final CSVRecord record) throws ParseException {
+			return MoneyParser.parse(record.get(amount));
+		}
+
+		public long fee(final CSVRecord record) throws ParseException {
+			return MoneyParser.parse(record.get(fee));
+		}
+
+		public long balance(final CSVRecord record) throws ParseException {
+			return MoneyParser.parse(record.get(balance));
+		}
+
+		private static int epochDay(final String value) throws ParseException {
+			try {
+				return Math.toIntExact(LocalDate.parse(value, DateTimeFormatter.ISO_DATE).toEpochDay());
+			} catch (DateTimeParseException dtpe) {
+				throw new ParseException(dtpe.getMessage(), dtpe.getErrorIndex());
+			}
+		}
+
+	}
+
+	/**
+	 * Dictionary-encoded string column: every distinct value is stored once
+	 */
+	static class DictionaryColumn {
+
+		private int[] codes;
+		private int size;
+		private final ArrayList<String> values;
+		private Map<String, Integer> lookup;
+
+		DictionaryColumn() {
+			codes = new int[INITIAL_CAPACITY];
+			size = 0;
+			values = new ArrayList<>();
+			lookup = new HashMap<>();
+		}
+
+		void add(final String value) {
+			if (size == codes.length) {
+				codes = Arrays.copyOf(codes, size + (size >> 1));
+			}
+			Integer code = lookup.get(value);
+			if (code == null) {
+				code = values.size();
+				values.add(value);
+				lookup.put(value, code);
+			}
+			codes[size++] = code;
+		}
+
+		String get(final int row) {
+			return values.get(codes[row]);
+		}
+
+		int distinct() {
+			return values.size();
+		}
+
+		void trim() {
+			codes = Arrays.copyOf(codes, size);
+			values.trimToSize();
+			lookup = new HashMap<>();
+		}
+
+	}
+
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Reader of Revolut statement export. Statement is always decoded as UTF-8, malformed input
+ * is reported instead of silently replaced, and byte order mark is skipped. Gzip compressed
+ * statement (.csv.gz) and first .csv entry of zip archive are read transparently, type is
+ * detected by content, not by name. Uncompressed files larger than {@link #MAP_THRESHOLD}
+ * are decoded directly from memory-mapped windows of file, so rows are never copied to
+ * intermediate byte buffers.
+ */
+public class StatementInput {
+
+	public static final long MAP_THRESHOLD = 16L * 1024 * 1024;
+	private static final long MAP_WINDOW = 64L * 1024 * 1024;
+	private static final int BUFFER_SIZE = 0x10000;
+
+	private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+	private static final byte[] GZIP_MAGIC = {(byte) 0x1F, (byte) 0x8B};
+	private static final byte[] ZIP_MAGIC = {'P', 'K', 0x03, 0x04};
+	private static final char BOM = '\uFEFF';
+
+	private StatementInput() {
+	}
+
+	/**
+	 * @return true for names of statements which can be opened by {@link #open(String)}
+	 */
+	public static boolean isStatement(final String fileName) {
+		return StringUtils.endsWithIgnoreCase(fileName, ".csv") ||
+				StringUtils.endsWithIgnoreCase(fileName, ".csv.gz") ||
+				StringUtils.endsWithIgnoreCase(fileName, ".zip");
+	}
+
+	/**
+	 * Opens Revolut statement for CSVParser
+	 *
+	 * @param fileName - .csv, .csv.gz or .zip file
+	 * @return reader positioned after byte order mark
+	 * @throws IOException
+	 */
+	public static Reader open(final String fileName) throws IOException {
+		final Path path = Paths.get(fileName);
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			final ByteBuffer magic = ByteBuffer.allocate(ZIP_MAGIC.length);
+			while (magic.hasRemaining() && channel.read(magic) != -1) {
+				// Files shorter than magic number are plain csv
+			}
+			magic.flip();
+			channel.position(0);
+			if (startsWith(magic, GZIP_MAGIC)) {
+				return reader(new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+			} else if (startsWith(magic, ZIP_MAGIC)) {
+				final ZipInputStream zis = new ZipInputStream(Channels.newInputStream(channel));
+				ZipEntry entry;
+				while ((entry = zis.getNextEntry()) != null) {
+					if (!entry.isDirectory() && StringUtils.endsWithIgnoreCase(entry.getName(), ".csv")) {
+						return reader(zis);
+					}
+				}
+				throw new IOException("No .csv file in " + fileName + "!");
+			} else if (channel.size() > MAP_THRESHOLD) {
+				return new MappedReader(channel, startsWith(magic, UTF8_BOM) ? UTF8_BOM.length : 0);
+			} else {
+				return reader(Channels.newInputStream(channel));
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static Reader reader(final InputStream is) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(is, decoder()), BUFFER_SIZE);
+		reader.mark(1);
+		if (reader.read() != BOM) {
+			reader.reset();
+		}
+		return reader;
+	}
+
+	private static CharsetDecoder decoder() {
+		return StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+	}
+
+	private static boolean startsWith(final ByteBuffer buffer, final byte[] prefix) {
+		if (buffer.remaining() < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (buffer.get(buffer.position() + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes file window by window, window is mapped again from first undecoded byte, so
+	 * characters split between windows are decoded correctly
+	 */
+	private static final class MappedReader extends Reader {
+
+		private final FileChannel channel;
+		private final long size;
+		private final CharsetDecoder decoder = decoder();
+		private MappedByteBuffer window;
+		private long windowStart;
+		private boolean flushed = false;
+
+		MappedReader(final FileChannel channel, final long start) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			map(start);
+		}
+
+		private void map(final long start) throws IOException {
+			windowStart = start;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW, size - start));
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+			while (true) {
+				final boolean last = windowStart + window.limit() >= size;
+				final CoderResult result = decoder.decode(window, out, last);
+				if (result.isError()) {
+					result.throwException();
+				}
+				if (out.position() > off) {
+					return out.position() - off;
+				} else if (last) {
+					if (!flushed) {
+						flushed = true;
+						decoder.flush(out);
+						if (out.position() > off) {
+							return out.position() - off;
+						}
+					}
+					return -1;
+				} else {
+					map(windowStart + window.position());
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+	}
+
+}
@@ -0,0 +1,515 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.validation.Schema;
+import javax.xml.validation.ValidatorHandler;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Validation of whole document in streaming mode, where Marshaller and Unmarshaller process
+ * only fragments (CdtTrfTxInf, Ntry) which cannot be validated as document root. Every StAX event
+ * read or written passes through ValidatorHandler of cached Schema, so document is validated
+ * in the same pass in which it is converted, errors are collected by {@link ValidationErrors}.
+ */
+public class StreamValidation {
+
+	private StreamValidation() {
+	}
+
+	/**
+	 * @param reader - reader positioned at START_DOCUMENT
+	 * @return reader which validates every event returned by next()
+	 */
+	public static XMLStreamReader reader(
+			final XMLStreamReader reader, final Schema schema, final ValidationErrors errors) throws XMLStreamException {
+		return new ValidatingReader(reader, handler(schema, errors));
+	}
+
+	/**
+	 * @return writer which validates every event written
+	 */
+	public static XMLStreamWriter writer(
+			final XMLStreamWriter writer, final Schema schema, final ValidationErrors errors) {
+		return new ValidatingWriter(writer, handler(schema, errors));
+	}
+
+	private static ValidatorHandler handler(final Schema schema, final ValidationErrors errors) {
+		final ValidatorHandler handler = schema.newValidatorHandler();
+		handler.setErrorHandler(errors);
+		return handler;
+	}
+
+	private static XMLStreamException streamException(final SAXException se) {
+		final XMLStreamException xse = new XMLStreamException(se.getMessage());
+		xse.initCause(se);
+		return xse;
+	}
+
+	/**
+	 * Translates StAX events to SAX events of ValidatorHandler, events read by Unmarshaller
+	 * from the same reader are validated too
+	 */
+	private static final class ValidatingReader extends StreamReaderDelegate implements Locator {
+
+		private final ValidatorHandler handler;
+		private final AttributesImpl attributes = new AttributesImpl();
+
+		ValidatingReader(final XMLStreamReader reader, final ValidatorHandler handler) throws XMLStreamException {
+			super(reader);
+			this.handler = handler;
+			handler.setDocumentLocator(this);
+			try {
+				handler.startDocument();
+				if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+					validate(XMLStreamConstants.START_ELEMENT);
+				}
+			} catch (SAXException se) {
+				throw streamException(se);
+			}
+		}
+
+		@Override
+		public int next() throws XMLStreamException {
+			final int event = super.next();
+			try {
+				validate(event);
+			} catch (SAXException se) {
+				throw streamException(se);
+			}
+			return event;
+		}
+
+		@Override
+		public int nextTag() throws XMLStreamException {
+			int event = next();
+			while (event == XMLStreamConstants.SPACE || event == XMLStreamConstants.COMMENT ||
+					event == XMLStreamConstants.PROCESSING_INSTRUCTION ||
+					(event == XMLStreamConstants.CHARACTERS && isWhiteSpace())) {
+				event = next();
+			}
+			if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+				throw new XMLStreamException("Expected start or end tag", getLocation());
+			}
+			return event;
+		}
+
+		@Override
+		public String getElementText() throws XMLStreamException {
+			final StringBuilder sb = new StringBuilder();
+			int event = next();
+			while (event != XMLStreamConstants.END_ELEMENT) {
+				if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA ||
+						event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+					sb.append(getText());
+				} else if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+					throw new XMLStreamException("Element text is not text only", getLocation());
+				}
+				event = next();
+			}
+			return sb.toString();
+		}
+
+		private void validate(final int event) throws SAXException {
+			switch (event) {
+			case XMLStreamConstants.START_ELEMENT:
+				for (int i = 0; i < getNamespaceCount(); i++) {
+					handler.startPrefixMapping(StringUtils.defaultString(getNamespacePrefix(i)),
+							StringUtils.defaultString(getNamespaceURI(i)));
+				}
+				attributes.clear();
+				for (int i = 0; i < getAttributeCount(); i++) {
+					final String prefix = getAttributePrefix(i);
+					final String localName = getAttributeLocalName(i);
+					attributes.addAttribute(StringUtils.defaultString(getAttributeNamespace(i)), localName,
+							StringUtils.isEmpty(prefix) ? localName : prefix + ":" + localName,
+							StringUtils.defaultString(getAttributeType(i), "CDATA"), getAttributeValue(i));
+				}
+				handler.startElement(StringUtils.defaultString(getNamespaceURI()), getLocalName(),
+						qName(getPrefix(), getLocalName()), attributes);
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				handler.endElement(StringUtils.defaultString(getNamespaceURI()), getLocalName(),
+						qName(getPrefix(), getLocalName()));
+				for (int i = 0; i < getNamespaceCount(); i++) {
+					handler.endPrefixMapping(StringUtils.defaultString(getNamespacePrefix(i)));
+				}
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				handler.characters(getTextCharacters(), getTextStart(), getTextLength());
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				handler.endDocument();
+				break;
+			default:
+				// Comments and processing instructions are not validated
+				break;
+			}
+		}
+
+		@Override
+		public String getPublicId() {
+			final Location location = getLocation();
+			return location == null ? null : location.getPublicId();
+		}
+
+		@Override
+		public String getSystemId() {
+			final Location location = getLocation();
+			return location == null ? null : location.getSystemId();
+		}
+
+		@Override
+		public int getLineNumber() {
+			final Location location = getLocation();
+			return location == null ? -1 : location.getLineNumber();
+		}
+
+		@Override
+		public int getColumnNumber() {
+			final Location location = getLocation();
+			return location == null ? -1 : location.getColumnNumber();
+		}
+
+	}
+
+	/**
+	 * Translates written events to SAX events of ValidatorHandler, start tag is sent when
+	 * its attributes are complete
+	 */
+	private static final class ValidatingWriter implements XMLStreamWriter {
+
+		private final XMLStreamWriter writer;
+		private final ValidatorHandler handler;
+		private final AttributesImpl attributes = new AttributesImpl();
+		// Prefixes declared by open elements, for endPrefixMapping
+		private final Deque<List<String>> prefixes = new ArrayDeque<>();
+		// Namespace URI, local name and qualified name of open elements
+		private final Deque<String[]> elements = new ArrayDeque<>();
+		private String[] pending;
+		private List<String> pendingPrefixes;
+		private boolean pendingEmpty;
+
+		ValidatingWriter(final XMLStreamWriter writer, final ValidatorHandler handler) {
+			this.writer = writer;
+			this.handler = handler;
+		}
+
+		private void start(final String namespaceURI, final String localName, final String prefix,
+				final boolean empty) throws XMLStreamException {
+			startPending();
+			final String uri = namespaceURI != null ?
+					namespaceURI :
+					StringUtils.defaultString(writer.getNamespaceContext().getNamespaceURI(
+							StringUtils.defaultString(prefix)));
+			pending = new String[] {uri, localName, qName(prefix, localName)};
+			pendingPrefixes = new ArrayList<>(0);
+			pendingEmpty = empty;
+			attributes.clear();
+		}
+
+		/**
+		 * Sends pending start tag to validator
+		 */
+		private void startPending() throws XMLStreamException {
+			if (pending != null) {
+				try {
+					handler.startElement(pending[0], pending[1], pending[2], attributes);
+					if (pendingEmpty) {
+						handler.endElement(pending[0], pending[1], pending[2]);
+						for (String prefix : pendingPrefixes) {
+							handler.endPrefixMapping(prefix);
+						}
+					} else {
+						elements.push(pending);
+						prefixes.push(pendingPrefixes);
+					}
+				} catch (SAXException se) {
+					throw streamException(se);
+				}
+				pending = null;
+				pendingPrefixes = null;
+			}
+		}
+
+		private void namespace(final String prefix, final String namespaceURI) throws XMLStreamException {
+			if (pending != null) {
+				try {
+					handler.startPrefixMapping(prefix, namespaceURI);
+				} catch (SAXException se) {
+					throw streamException(se);
+				}
+				pendingPrefixes.add(prefix);
+			}
+		}
+
+		private void attribute(final String prefix, final String namespaceURI, final String localName,
+				final String value) {
+			if (pending != null) {
+				attributes.addAttribute(StringUtils.defaultString(namespaceURI), localName,
+						qName(prefix, localName), "CDATA", value);
+			}
+		}
+
+		private void characters(final char[] text, final int start, final int len) throws XMLStreamException {
+			startPending();
+			try {
+				handler.characters(text, start, len);
+			} catch (SAXException se) {
+				throw streamException(se);
+			}
+		}
+
+		@Override
+		public void writeStartElement(final String localName) throws XMLStreamException {
+			start(null, localName, "", false);
+			writer.writeStartElement(localName);
+		}
+
+		@Override
+		public void writeStartElement(final String namespaceURI, final String localName) throws XMLStreamException {
+			start(namespaceURI, localName, writer.getPrefix(namespaceURI), false);
+			writer.writeStartElement(namespaceURI, localName);
+		}
+
+		@Override
+		public void writeStartElement(final String prefix, final String localName, final String namespaceURI)
+				throws XMLStreamException {
+			start(namespaceURI, localName, prefix, false);
+			writer.writeStartElement(prefix, localName, namespaceURI);
+		}
+
+		@Override
+		public void writeEmptyElement(final String namespaceURI, final String localName) throws XMLStreamException {
+			start(namespaceURI, localName, writer.getPrefix(namespaceURI), true);
+			writer.writeEmptyElement(namespaceURI, localName);
+		}
+
+		@Override
+		public void writeEmptyElement(final String prefix, final String localName, final String namespaceURI)
+				throws XMLStreamException {
+			start(namespaceURI, localName, prefix, true);
+			writer.writeEmptyElement(prefix, localName, namespaceURI);
+		}
+
+		@Override
+		public void writeEmptyElement(final String localName) throws XMLStreamException {
+			start(null, localName, "", true);
+			writer.writeEmptyElement(localName);
+		}
+
+		@Override
+		public void writeEndElement() throws XMLStreamException {
+			startPending();
+			final String[] element = elements.pop();
+			try {
+				handler.endElement(element[0], element[1], element[2]);
+				for (String prefix : prefixes.pop()) {
+					handler.endPrefixMapping(prefix);
+				}
+			} catch (SAXException se) {
+				throw streamException(se);
+			}
+			writer.writeEndElement();
+		}
+
+		@Override
+		public void writeEndDocument() throws XMLStreamException {
+			startPending();
+			while (!elements.isEmpty()) {
+				writeEndElement();
+			}
+			try {
+				handler.endDocument();
+			} catch (SAXException se) {
+				throw streamException(se);
+			}
+			writer.writeEndDocument();
+		}
+
+		@Override
+		public void close() throws XMLStreamException {
+			writer.close();
+		}
+
+		@Override
+		public void flush() throws XMLStreamException {
+			writer.flush();
+		}
+
+		@Override
+		public void writeAttribute(final String localName, final String value) throws XMLStreamException {
+			attribute("", "", localName, value);
+			writer.writeAttribute(localName, value);
+		}
+
+		@Override
+		public void writeAttribute(final String prefix, final String namespaceURI, final String localName,
+				final String value) throws XMLStreamException {
+			attribute(prefix, namespaceURI, localName, value);
+			writer.writeAttribute(prefix, namespaceURI, localName, value);
+		}
+
+		@Override
+		public void writeAttribute(final String namespaceURI, final String localName, final String value)
+				throws XMLStreamException {
+			attribute(writer.getPrefix(namespaceURI), namespaceURI, localName, value);
+			writer.writeAttribute(namespaceURI, localName, value);
+		}
+
+		@Override
+		public void writeNamespace(final String prefix, final String namespaceURI) throws XMLStreamException {
+			if (StringUtils.isEmpty(prefix) || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+				writeDefaultNamespace(namespaceURI);
+			} else {
+				namespace(prefix, namespaceURI);
+				writer.writeNamespace(prefix, namespaceURI);
+			}
+		}
+
+		@Override
+		public void writeDefaultNamespace(final String namespaceURI) throws XMLStreamException {
+			namespace("", namespaceURI);
+			writer.writeDefaultNamespace(namespaceURI);
+		}
+
+		@Override
+		public void writeComment(final String data) throws XMLStreamException {
+			startPending();
+			writer.writeComment(data);
+		}
+
+		@Override
+		public void writeProcessingInstruction(final String target) throws XMLStreamException {
+			startPending();
+			writer.writeProcessingInstruction(target);
+		}
+
+		@Override
+		public void writeProcessingInstruction(final String target, final String data) throws XMLStreamException {
+			startPending();
+			writer.writeProcessingInstruction(target, data);
+		}
+
+		@Override
+		public void writeCData(final String data) throws XMLStreamException {
+			characters(data.toCharArray(), 0, data.length());
+			writer.writeCData(data);
+		}
+
+		@Override
+		public void writeDTD(final String dtd) throws XMLStreamException {
+			writer.writeDTD(dtd);
+		}
+
+		@Override
+		public void writeEntityRef(final String name) throws XMLStreamException {
+			startPending();
+			writer.writeEntityRef(name);
+		}
+
+		@Override
+		public void writeStartDocument() throws XMLStreamException {
+			startDocument();
+			writer.writeStartDocument();
+		}
+
+		@Override
+		public void writeStartDocument(final String version) throws XMLStreamException {
+			startDocument();
+			writer.writeStartDocument(version);
+		}
+
+		@Override
+		public void writeStartDocument(final String encoding, final String version) throws XMLStreamException {
+			startDocument();
+			writer.writeStartDocument(encoding, version);
+		}
+
+		private void startDocument() throws XMLStreamException {
+			try {
+				handler.startDocument();
+			} catch (SAXException se) {
+				throw streamException(se);
+			}
+		}
+
+		@Override
+		public void writeCharacters(final String text) throws XMLStreamException {
+			characters(text.toCharArray(), 0, text.length());
+			writer.writeCharacters(text);
+		}
+
+		@Override
+		public void writeCharacters(final char[] text, final int start, final int len) throws XMLStreamException {
+			characters(text, start, len);
+			writer.writeCharacters(text, start, len);
+		}
+
+		@Override
+		public String getPrefix(final String uri) throws XMLStreamException {
+			return writer.getPrefix(uri);
+		}
+
+		@Override
+		public void setPrefix(final String prefix, final String uri) throws XMLStreamException {
+			writer.setPrefix(prefix, uri);
+		}
+
+		@Override
+		public void setDefaultNamespace(final String uri) throws XMLStreamException {
+			writer.setDefaultNamespace(uri);
+		}
+
+		@Override
+		public void setNamespaceContext(final NamespaceContext context) throws XMLStreamException {
+			writer.setNamespaceContext(context);
+		}
+
+		@Override
+		public NamespaceContext getNamespaceContext() {
+			return writer.getNamespaceContext();
+		}
+
+		@Override
+		public Object getProperty(final String name) {
+			return writer.getProperty(name);
+		}
+
+	}
+
+	private static String qName(final String prefix, final String localName) {
+		return StringUtils.isEmpty(prefix) ? localName : prefix + ":" + localName;
+	}
+
+}
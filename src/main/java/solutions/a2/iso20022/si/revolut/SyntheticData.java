@@ -0,0 +1,418 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.PropertyConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Seeded generator of synthetic Revolut statements and pain.001.001.03 files for benchmarks,
+ * soak tests and capacity planning. Same seed and parameters always produce same file.
+ * Statements have consistent running balances (Balance = previous Balance + Amount + Fee),
+ * pain.001.001.03 files are valid against bundled XSD and contain valid IBAN check digits.
+ */
+public class SyntheticData {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticData.class);
+
+	public static final long DEFAULT_SEED = 20220501L;
+	public static final int DEFAULT_ROWS_PER_DAY = 20;
+
+	private static final String PAIN001_NS = "urn:iso:std:iso:20022:tech:xsd:pain.001.001.03";
+	private static final String DEBTOR_NAME = "A2 Rešitve digitalne storitve d.o.o.";
+	private static final String DEBTOR_IBAN = iban("LT", "3250012345678901");
+
+	private static final String[] MERCHANTS = {
+			"Mercator", "Spar", "Hofer", "Petrol", "OMV", "Lidl", "Tuš", "Müller", "DM", "Big Bang",
+			"Kavarna Čokl", "Gostilna Šmon", "Žito", "Amazon", "Google", "Booking.com", "Uber", "Bolt" };
+	private static final String[] NAMES = {
+			"Ana Novak", "Luka Horvat", "Maja Kovačič", "Matej Krajnc", "Nina Zupančič", "Žiga Potočnik",
+			"Eva Kos", "Jure Vidmar", "Tina Golob", "Rok Turk", "Špela Kralj", "Gašper Božič" };
+
+	private final long seed;
+
+	public SyntheticData(final long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Writes Revolut statement, newest row first as Revolut does
+	 *
+	 * @param file         - statement in csv format
+	 * @param timeZoneName - time zone in "Date started" and "Date completed" column names
+	 * @param rows         - number of rows
+	 * @param rowsPerDay   - number of rows with same "Date completed"
+	 * @param lastDay      - "Date completed" of newest row
+	 * @throws IOException
+	 */
+	public void statement(final Path file, final String timeZoneName,
+			final long rows, final int rowsPerDay, final LocalDate lastDay) throws IOException {
+		final SplittableRandom random = new SplittableRandom(seed);
+		// Rows are written from newest to oldest, balance goes backwards from closing balance
+		long balance = 25_000_00L + random.nextLong(1_000_000_00L);
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+				CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT)) {
+			printer.printRecord(
+					"Date started (" + timeZoneName + ")",
+					"Date completed (" + timeZoneName + ")",
+					"ID", "Type", "Description", "Reference", "Payer", "Card number",
+					"Orig currency", "Orig amount", "Payment currency", "Amount", "Fee", "Balance");
+			for (long row = 0; row < rows; row++) {
+				final LocalDate completed = lastDay.minusDays(row / rowsPerDay);
+				final int kind = random.nextInt(100);
+				final String type;
+				final String description;
+				final String reference;
+				final String payer;
+				final String cardNumber;
+				final long amount;
+				long fee = 0;
+				int pending = 0;
+				if (kind < 70) {
+					type = "CARD_PAYMENT";
+					description = MERCHANTS[random.nextInt(MERCHANTS.length)];
+					reference = "";
+					payer = NAMES[random.nextInt(NAMES.length)];
+					cardNumber = "459876******" + (1000 + random.nextInt(9000));
+					amount = -(100 + random.nextLong(20_000));
+					// Card payments are completed up to two days after they are started
+					pending = random.nextInt(3);
+					if (random.nextInt(10) == 0) {
+						// Foreign currency payment
+						fee = -(10 + random.nextInt(190));
+					}
+				} else if (kind < 90) {
+					type = "TRANSFER";
+					final String counterparty = NAMES[random.nextInt(NAMES.length)];
+					reference = "SI00 " + completed.getYear() + "-" + (row % 100_000);
+					payer = "";
+					cardNumber = "";
+					if (random.nextBoolean()) {
+						description = "To " + counterparty;
+						amount = -(1_000 + random.nextLong(300_000));
+					} else {
+						description = "Payment from " + counterparty;
+						amount = 1_000 + random.nextLong(300_000);
+					}
+				} else if (kind < 98) {
+					type = "TOPUP";
+					description = "Top-Up by *" + (1000 + random.nextInt(9000));
+					reference = "";
+					payer = "";
+					cardNumber = "";
+					amount = 10_000 + random.nextLong(100_000);
+				} else {
+					type = "FEE";
+					description = "Grow plan fee";
+					reference = "";
+					payer = "";
+					cardNumber = "";
+					amount = -2_500;
+				}
+				printer.printRecord(
+						completed.minusDays(pending), completed,
+						new UUID(random.nextLong(), random.nextLong()),
+						type, description, reference, payer, cardNumber,
+						"EUR", MoneyParser.toBigDecimal(amount), "EUR", MoneyParser.toBigDecimal(amount),
+						MoneyParser.toBigDecimal(fee), MoneyParser.toBigDecimal(balance));
+				balance = Math.subtractExact(balance, Math.addExact(amount, fee));
+			}
+		}
+	}
+
+	/**
+	 * Writes pain.001.001.03 file
+	 *
+	 * @param file                - pain.001.001.03 file
+	 * @param paymentInstructions - number of PmtInf elements
+	 * @param transactions        - number of CdtTrfTxInf elements in every PmtInf
+	 * @throws IOException
+	 */
+	public void payments(final Path file,
+			final int paymentInstructions, final int transactions) throws IOException {
+		// Amounts depend only on seed and transaction number, control sums are calculated before write
+		long ctrlSum = 0;
+		for (long tx = 0; tx < (long) paymentInstructions * transactions; tx++) {
+			ctrlSum = Math.addExact(ctrlSum, amount(tx));
+		}
+		final SplittableRandom random = new SplittableRandom(seed);
+		try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file), 0x10000)) {
+			final XMLStreamWriter xsw = XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8");
+			xsw.writeStartDocument("UTF-8", "1.0");
+			xsw.setDefaultNamespace(PAIN001_NS);
+			xsw.writeStartElement(PAIN001_NS, "Document");
+			xsw.writeDefaultNamespace(PAIN001_NS);
+			xsw.writeStartElement(PAIN001_NS, "CstmrCdtTrfInitn");
+
+			xsw.writeStartElement(PAIN001_NS, "GrpHdr");
+			element(xsw, "MsgId", "SYNTHETIC-" + Long.toHexString(seed));
+			element(xsw, "CreDtTm", "2022-05-01T10:00:00");
+			element(xsw, "NbOfTxs", Long.toString((long) paymentInstructions * transactions));
+			element(xsw, "CtrlSum", MoneyParser.toBigDecimal(ctrlSum).toPlainString());
+			xsw.writeStartElement(PAIN001_NS, "InitgPty");
+			element(xsw, "Nm", DEBTOR_NAME);
+			xsw.writeEndElement();
+			xsw.writeEndElement();
+
+			long tx = 0;
+			for (int pmtInf = 0; pmtInf < paymentInstructions; pmtInf++) {
+				long pmtInfSum = 0;
+				for (int i = 0; i < transactions; i++) {
+					pmtInfSum += amount(tx + i);
+				}
+				xsw.writeStartElement(PAIN001_NS, "PmtInf");
+				element(xsw, "PmtInfId", "PMTINF-" + pmtInf);
+				element(xsw, "PmtMtd", "TRF");
+				element(xsw, "NbOfTxs", Integer.toString(transactions));
+				element(xsw, "CtrlSum", MoneyParser.toBigDecimal(pmtInfSum).toPlainString());
+				xsw.writeStartElement(PAIN001_NS, "PmtTpInf");
+				xsw.writeStartElement(PAIN001_NS, "SvcLvl");
+				element(xsw, "Cd", "SEPA");
+				xsw.writeEndElement();
+				xsw.writeEndElement();
+				element(xsw, "ReqdExctnDt", "2022-05-02");
+				xsw.writeStartElement(PAIN001_NS, "Dbtr");
+				element(xsw, "Nm", DEBTOR_NAME);
+				xsw.writeEndElement();
+				account(xsw, "DbtrAcct", DEBTOR_IBAN);
+				agent(xsw, "DbtrAgt", "REVOLT21");
+				element(xsw, "ChrgBr", "SLEV");
+
+				for (int i = 0; i < transactions; i++, tx++) {
+					xsw.writeStartElement(PAIN001_NS, "CdtTrfTxInf");
+					xsw.writeStartElement(PAIN001_NS, "PmtId");
+					element(xsw, "EndToEndId", "E2E-" + tx);
+					xsw.writeEndElement();
+					xsw.writeStartElement(PAIN001_NS, "Amt");
+					xsw.writeStartElement(PAIN001_NS, "InstdAmt");
+					xsw.writeAttribute("Ccy", "EUR");
+					xsw.writeCharacters(MoneyParser.toBigDecimal(amount(tx)).toPlainString());
+					xsw.writeEndElement();
+					xsw.writeEndElement();
+					agent(xsw, "CdtrAgt", random.nextBoolean() ? "LJBASI2X" : "BAKOSI2X");
+					xsw.writeStartElement(PAIN001_NS, "Cdtr");
+					element(xsw, "Nm", NAMES[random.nextInt(NAMES.length)]);
+					xsw.writeStartElement(PAIN001_NS, "PstlAdr");
+					element(xsw, "Ctry", "SI");
+					xsw.writeEndElement();
+					xsw.writeEndElement();
+					account(xsw, "CdtrAcct", iban("SI", String.format("%015d", tx % 1_000_000_000_000_000L)));
+					xsw.writeStartElement(PAIN001_NS, "RmtInf");
+					xsw.writeStartElement(PAIN001_NS, "Strd");
+					xsw.writeStartElement(PAIN001_NS, "CdtrRefInf");
+					xsw.writeStartElement(PAIN001_NS, "Tp");
+					xsw.writeStartElement(PAIN001_NS, "CdOrPrtry");
+					element(xsw, "Cd", "SCOR");
+					xsw.writeEndElement();
+					xsw.writeEndElement();
+					element(xsw, "Ref", "SI00" + tx);
+					xsw.writeEndElement();
+					xsw.writeEndElement();
+					xsw.writeEndElement();
+					xsw.writeEndElement();
+				}
+				xsw.writeEndElement();
+			}
+
+			xsw.writeEndElement();
+			xsw.writeEndElement();
+			xsw.writeEndDocument();
+			xsw.close();
+		} catch (XMLStreamException xse) {
+			throw new IOException(xse);
+		}
+	}
+
+	/**
+	 * Amount of transaction in minor units, 10.00 - 3009.99
+	 */
+	private long amount(final long tx) {
+		// SplitMix64 finalizer
+		long z = seed + (tx + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return 1_000 + Math.floorMod(z, 300_000L);
+	}
+
+	/**
+	 *
+	 * @param country - ISO 3166 country code
+	 * @param bban    - country specific account number, digits only
+	 * @return IBAN with valid check digits
+	 */
+	static String iban(final String country, final String bban) {
+		final int check = AccountValidator.checkDigits(country, bban);
+		return country + (check < 10 ? "0" : "") + check + bban;
+	}
+
+	private static void account(
+			final XMLStreamWriter xsw, final String localName, final String iban) throws XMLStreamException {
+		xsw.writeStartElement(PAIN001_NS, localName);
+		xsw.writeStartElement(PAIN001_NS, "Id");
+		element(xsw, "IBAN", iban);
+		xsw.writeEndElement();
+		xsw.writeEndElement();
+	}
+
+	private static void agent(
+			final XMLStreamWriter xsw, final String localName, final String bic) throws XMLStreamException {
+		xsw.writeStartElement(PAIN001_NS, localName);
+		xsw.writeStartElement(PAIN001_NS, "FinInstnId");
+		element(xsw, "BIC", bic);
+		xsw.writeEndElement();
+		xsw.writeEndElement();
+	}
+
+	private static void element(
+			final XMLStreamWriter xsw, final String localName, final String value) throws XMLStreamException {
+		xsw.writeStartElement(PAIN001_NS, localName);
+		xsw.writeCharacters(value);
+		xsw.writeEndElement();
+	}
+
+	public static void main(String[] argv) {
+		// Check for valid log4j configuration
+		final String log4jConfig = System.getProperty("a2.log4j.configuration");
+		if (log4jConfig == null || "".equals(log4jConfig)) {
+			BasicConfigurator.configure();
+			LOGGER.warn("JVM argument -Da2.log4j.configuration not set!");
+		} else {
+			// Check that log4j configuration file exist
+			Path path = Paths.get(log4jConfig);
+			if (!Files.exists(path) || Files.isDirectory(path)) {
+				BasicConfigurator.configure();
+				LOGGER.error("JVM argument -Da2.log4j.configuration points to unknown file {}.", log4jConfig);
+			} else {
+				// Initialize log4j
+				PropertyConfigurator.configure(log4jConfig);
+			}
+		}
+
+		final Options options = new Options();
+
+		final Option optionOutput = new Option("o", "output", true,
+				"Output file, Revolut statement when name ends with .csv, otherwise pain.001.001.03 file.");
+		optionOutput.setRequired(true);
+		options.addOption(optionOutput);
+
+		final Option optionRows = new Option("r", "rows", true,
+				"Number of statement rows, or number of PmtInf elements for pain.001.001.03 file.");
+		optionRows.setRequired(true);
+		options.addOption(optionRows);
+
+		final Option optionTransactions = new Option("c", "transactions", true,
+				"Number of CdtTrfTxInf elements in every PmtInf, default - 1.");
+		optionTransactions.setRequired(false);
+		options.addOption(optionTransactions);
+
+		final Option optionRowsPerDay = new Option("d", "rows-per-day", true,
+				"Number of statement rows per day, default - " + DEFAULT_ROWS_PER_DAY + ".");
+		optionRowsPerDay.setRequired(false);
+		options.addOption(optionRowsPerDay);
+
+		final Option optionLastDay = new Option("e", "last-day", true,
+				"Date completed of newest statement row, default - today.");
+		optionLastDay.setRequired(false);
+		options.addOption(optionLastDay);
+
+		final Option optionSeed = new Option("S", "seed", true,
+				"Random seed, default - " + DEFAULT_SEED + ".");
+		optionSeed.setRequired(false);
+		options.addOption(optionSeed);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cmd = null;
+		long rows = 0;
+		int transactions = 1;
+		int rowsPerDay = DEFAULT_ROWS_PER_DAY;
+		LocalDate lastDay = LocalDate.now();
+		long seed = DEFAULT_SEED;
+		try {
+			cmd = parser.parse(options, argv);
+			rows = Long.parseLong(cmd.getOptionValue("r"));
+			if (cmd.hasOption("c")) {
+				transactions = Integer.parseInt(cmd.getOptionValue("c"));
+			}
+			if (cmd.hasOption("d")) {
+				rowsPerDay = Integer.parseInt(cmd.getOptionValue("d"));
+			}
+			if (cmd.hasOption("e")) {
+				lastDay = LocalDate.parse(cmd.getOptionValue("e"));
+			}
+			if (cmd.hasOption("S")) {
+				seed = Long.parseLong(cmd.getOptionValue("S"));
+			}
+			if (rows < 1 || transactions < 1 || rowsPerDay < 1) {
+				throw new org.apache.commons.cli.ParseException("Number of rows, transactions and rows per day must be positive!");
+			}
+		} catch (org.apache.commons.cli.ParseException | NumberFormatException | DateTimeParseException pe) {
+			LOGGER.error(pe.getMessage());
+			formatter.printHelp(SyntheticData.class.getCanonicalName(), options);
+			System.exit(1);
+		}
+
+		final Path output = Paths.get(cmd.getOptionValue("o"));
+		final SyntheticData generator = new SyntheticData(seed);
+		try {
+			final long started = System.nanoTime();
+			if (StringUtils.endsWithIgnoreCase(output.getFileName().toString(), ".csv")) {
+				generator.statement(output, PropertiesManager.TZ, rows, rowsPerDay, lastDay);
+			} else {
+				generator.payments(output, Math.toIntExact(rows), transactions);
+			}
+			LOGGER.info("{} ({} bytes) generated in {} ms.",
+					output, Files.size(output), (System.nanoTime() - started) / 1_000_000);
+		} catch (IOException | ArithmeticException e) {
+			LOGGER.error(e.getMessage());
+			final StringWriter sw = new StringWriter();
+			final PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			LOGGER.error(sw.toString());
+			System.exit(1);
+		}
+	}
+
+}
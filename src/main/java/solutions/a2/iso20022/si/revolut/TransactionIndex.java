@@ -0,0 +1,463 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * IDs of Revolut statement rows already converted for account, kept in memory-mapped
+ * open-addressing hash table &lt;IBAN&gt;.idx, one table per account in index directory.
+ * ID (UUID, dashes stripped as in TxId) is stored as 128-bit key in 16 byte slot, IDs in
+ * other format are stored as 128-bit hash. Lookup touches only pages of probed slots, so
+ * index of millions IDs is opened without reading it and resident memory grows only with
+ * pages used.
+ * <p>
+ * IDs of converted rows are collected in {@link Batch} (temporary journal file) and added
+ * only after output was committed. Committed journal is renamed to &lt;IBAN&gt;.idx.journal
+ * before it is applied and journal left by interrupted run is applied again when index is
+ * opened, so either all or none IDs of conversion are added. Table is doubled to new file
+ * which replaces previous one when load factor exceeds {@link #MAX_LOAD_PERCENT}%, both tables
+ * are unmapped before file is replaced, because Windows does not replace mapped file.
+ * <p>
+ * File format: magic, capacity (power of two), number of IDs and reserved long followed by
+ * capacity slots of two longs, all zero slot is empty.
+ * Index is locked with &lt;IBAN&gt;.idx.lock for the time it is open (also against second open
+ * in the same JVM), instance is not thread-safe.
+ */
+public class TransactionIndex implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TransactionIndex.class);
+
+	public static final String SUFFIX = ".idx";
+	private static final String JOURNAL_SUFFIX = ".journal";
+	private static final String LOCK_SUFFIX = ".lock";
+
+	// "A2TXIDX1"
+	private static final long MAGIC = 0x4132545849445831L;
+	private static final int HEADER_SIZE = 32;
+	private static final int CAPACITY_OFFSET = 8;
+	private static final int SIZE_OFFSET = 16;
+	private static final int SLOT_SIZE = 16;
+	static final int INITIAL_CAPACITY = 1 << 16;
+	// Whole table is mapped as single MappedByteBuffer
+	private static final int MAX_CAPACITY = 1 << 26;
+	static final int MAX_LOAD_PERCENT = 70;
+	private static final int JOURNAL_BUFFER_SIZE = 0x10000;
+
+	private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+
+	// Java 11 has no public API to release mapping, sun.misc.Unsafe.invokeCleaner is used
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.warn("Unable to access sun.misc.Unsafe, transaction index is unmapped by GC: {}", e.getMessage());
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private final Path file;
+	private final Path journal;
+	private final FileChannel lockChannel;
+	private final FileLock lock;
+	private MappedByteBuffer table;
+	private int capacity;
+	private long size;
+
+	private TransactionIndex(final Path file) throws IOException {
+		this.file = file;
+		this.journal = file.resolveSibling(file.getFileName() + JOURNAL_SUFFIX);
+		lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + LOCK_SUFFIX),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			FileLock acquired;
+			try {
+				acquired = lockChannel.tryLock();
+			} catch (OverlappingFileLockException ofle) {
+				// Index is open in this JVM
+				acquired = null;
+			}
+			lock = acquired;
+			if (lock == null) {
+				throw new IOException("Transaction index " + file + " is used by other conversion!");
+			}
+			if (!Files.exists(file)) {
+				create(file, INITIAL_CAPACITY);
+			}
+			map();
+			if (Files.exists(journal)) {
+				LOGGER.warn("Applying journal {} of interrupted conversion.", journal);
+				apply();
+			}
+		} catch (IOException | RuntimeException e) {
+			lockChannel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens (or creates) index of account
+	 *
+	 * @param directory - index directory, one file per account
+	 * @param iban      - account IBAN
+	 */
+	public static TransactionIndex open(final Path directory, final String iban) throws IOException {
+		Files.createDirectories(directory);
+		return new TransactionIndex(directory.resolve(
+				StringUtils.deleteWhitespace(StringUtils.upperCase(iban)) + SUFFIX));
+	}
+
+	/**
+	 * @return number of IDs in index
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @param id - "ID" of Revolut statement row
+	 * @return true when row was converted before
+	 */
+	public boolean contains(final String id) {
+		final long high = key(id, true);
+		final long low = nonEmpty(high, key(id, false));
+		final int mask = capacity - 1;
+		for (int slot = slot(high, low, mask); ; slot = (slot + 1) & mask) {
+			final int offset = HEADER_SIZE + slot * SLOT_SIZE;
+			final long slotHigh = table.getLong(offset);
+			final long slotLow = table.getLong(offset + 8);
+			if (slotHigh == high && slotLow == low) {
+				return true;
+			} else if (slotHigh == 0 && slotLow == 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Starts collecting IDs of conversion, caller must {@link Batch#commit()} it after output
+	 * is written and close it in finally block (or try-with-resources)
+	 */
+	public Batch batch() throws IOException {
+		return new Batch();
+	}
+
+	@Override
+	public void close() throws IOException {
+		final MappedByteBuffer mapped = table;
+		table = null;
+		unmap(mapped);
+		try {
+			lock.release();
+		} finally {
+			lockChannel.close();
+		}
+	}
+
+	/**
+	 * IDs of rows written by one conversion, kept in temporary journal file
+	 */
+	public final class Batch implements Closeable {
+
+		private final Path temp;
+		private final DataOutputStream out;
+		private boolean committed = false;
+
+		private Batch() throws IOException {
+			temp = journal.resolveSibling(journal.getFileName() + "." +
+					Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+			out = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW),
+					JOURNAL_BUFFER_SIZE));
+		}
+
+		public void add(final String id) throws IOException {
+			final long high = key(id, true);
+			out.writeLong(high);
+			out.writeLong(nonEmpty(high, key(id, false)));
+		}
+
+		/**
+		 * Renames journal, adds its IDs to index and deletes it
+		 */
+		public void commit() throws IOException {
+			out.close();
+			OutputSink.commit(temp, journal);
+			committed = true;
+			apply();
+		}
+
+		/**
+		 * Deletes journal which is not committed
+		 */
+		@Override
+		public void close() throws IOException {
+			if (!committed) {
+				try {
+					out.close();
+				} finally {
+					Files.deleteIfExists(temp);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Adds IDs of committed journal to table, forces table and deletes journal.
+	 * IDs which are already in table are skipped, so journal can be applied again.
+	 */
+	private void apply() throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(JOURNAL_BUFFER_SIZE);
+		long added = 0;
+		try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+			boolean eof = false;
+			while (!eof) {
+				eof = channel.read(buffer) == -1;
+				buffer.flip();
+				while (buffer.remaining() >= SLOT_SIZE) {
+					if (insert(buffer.getLong(), buffer.getLong())) {
+						added++;
+					}
+				}
+				if (eof && buffer.hasRemaining()) {
+					// Journal is always renamed after it is closed
+					throw new IOException("Truncated journal " + journal + "!");
+				}
+				buffer.compact();
+			}
+		}
+		table.force();
+		table.putLong(SIZE_OFFSET, size);
+		table.force();
+		Files.delete(journal);
+		LOGGER.debug("Added {} ID(s) to {}, {} ID(s) in index.", added, file, size);
+	}
+
+	private boolean insert(final long high, final long low) throws IOException {
+		if ((size + 1) * 100 > (long) capacity * MAX_LOAD_PERCENT) {
+			grow();
+		}
+		if (put(table, capacity, high, low)) {
+			size++;
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * @return false when key is already in table
+	 */
+	private static boolean put(final MappedByteBuffer table, final int capacity, final long high, final long low) {
+		final int mask = capacity - 1;
+		for (int slot = slot(high, low, mask); ; slot = (slot + 1) & mask) {
+			final int offset = HEADER_SIZE + slot * SLOT_SIZE;
+			final long slotHigh = table.getLong(offset);
+			final long slotLow = table.getLong(offset + 8);
+			if (slotHigh == high && slotLow == low) {
+				return false;
+			} else if (slotHigh == 0 && slotLow == 0) {
+				table.putLong(offset, high);
+				table.putLong(offset + 8, low);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Rehashes table to file with double capacity which replaces current file
+	 */
+	private void grow() throws IOException {
+		if (capacity == MAX_CAPACITY) {
+			throw new IOException("Transaction index " + file + " is full!");
+		}
+		final int newCapacity = capacity << 1;
+		final Path temp = file.resolveSibling(file.getFileName() + "." +
+				Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+		try {
+			create(temp, newCapacity);
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				final MappedByteBuffer newTable = channel.map(FileChannel.MapMode.READ_WRITE, 0, length(newCapacity));
+				for (int slot = 0; slot < capacity; slot++) {
+					final int offset = HEADER_SIZE + slot * SLOT_SIZE;
+					final long high = table.getLong(offset);
+					final long low = table.getLong(offset + 8);
+					if (high != 0 || low != 0) {
+						put(newTable, newCapacity, high, low);
+					}
+				}
+				newTable.putLong(SIZE_OFFSET, size);
+				newTable.force();
+				unmap(newTable);
+			}
+			final MappedByteBuffer mapped = table;
+			table = null;
+			unmap(mapped);
+			OutputSink.commit(temp, file);
+		} finally {
+			Files.deleteIfExists(temp);
+			if (table == null) {
+				// New table, or previous one when it was not replaced
+				map();
+			}
+		}
+		LOGGER.debug("Transaction index {} resized to {} slots.", file, capacity);
+	}
+
+	private static void create(final Path path, final int capacity) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putLong(MAGIC).putLong(capacity).putLong(0).putLong(0).flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			// Sparse file, slots are zero until written
+			channel.write(ByteBuffer.allocate(1), length(capacity) - 1);
+			channel.force(true);
+		}
+	}
+
+	private void map() throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final long length = channel.size();
+			if (length < HEADER_SIZE) {
+				throw new IOException("Wrong transaction index " + file + "!");
+			}
+			final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			final long fileCapacity = header.getLong(CAPACITY_OFFSET);
+			if (header.getLong(0) != MAGIC || fileCapacity < 1 || fileCapacity > MAX_CAPACITY ||
+					Long.bitCount(fileCapacity) != 1 || length != length((int) fileCapacity)) {
+				throw new IOException("Wrong transaction index " + file + "!");
+			}
+			capacity = (int) fileCapacity;
+			table = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+			size = table.getLong(SIZE_OFFSET);
+		}
+	}
+
+	/**
+	 * Releases mapping immediately, buffer must not be used after it
+	 */
+	private static void unmap(final MappedByteBuffer buffer) {
+		if (buffer == null || INVOKE_CLEANER == null) {
+			return;
+		}
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("Unable to unmap transaction index: {}", e.getMessage());
+		}
+	}
+
+	private static long length(final int capacity) {
+		return HEADER_SIZE + (long) capacity * SLOT_SIZE;
+	}
+
+	private static int slot(final long high, final long low, final int mask) {
+		return (int) (mix(high ^ Long.rotateLeft(low, 32)) & mask);
+	}
+
+	/**
+	 * All zero slot is empty, so all zero key is stored as 1
+	 */
+	private static long nonEmpty(final long high, final long low) {
+		return (high | low) == 0 ? 1 : low;
+	}
+
+	/**
+	 * @param high - true for first 64 bits of key
+	 * @return half of 128-bit key, UUID as is or hash of other ID
+	 */
+	static long key(final String id, final boolean high) {
+		long value = 0;
+		int digits = 0;
+		for (int i = 0; i < id.length(); i++) {
+			final char c = id.charAt(i);
+			if (c == '-') {
+				continue;
+			}
+			final int digit = hexDigit(c);
+			if (digit < 0 || digits == 32) {
+				return hash(id, high);
+			}
+			if ((digits < 16) == high) {
+				value = (value << 4) | digit;
+			}
+			digits++;
+		}
+		return digits == 32 ? value : hash(id, high);
+	}
+
+	private static int hexDigit(final char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		} else if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		} else if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		} else {
+			return -1;
+		}
+	}
+
+	/**
+	 * FNV-1a with different offset basis for each half, finalized with murmur3 mix
+	 */
+	private static long hash(final String id, final boolean high) {
+		long hash = high ? FNV_OFFSET : ~FNV_OFFSET;
+		for (int i = 0; i < id.length(); i++) {
+			hash = (hash ^ id.charAt(i)) * FNV_PRIME;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xFF51AFD7ED558CCDL;
+		value ^= value >>> 33;
+		value *= 0xC4CEB9FE1A85EC53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jakarta.xml.bind.ValidationEvent;
+import jakarta.xml.bind.ValidationEventHandler;
+import jakarta.xml.bind.ValidationEventLocator;
+import jakarta.xml.bind.ValidationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Collects XSD validation errors of one document with line and column numbers. Used as
+ * ValidationEventHandler of Marshaller/Unmarshaller and as ErrorHandler of ValidatorHandler
+ * in streaming mode. Marshaller and Unmarshaller stop at first error, ValidatorHandler continues,
+ * so all errors of streamed element (up to {@link #MAX_ERRORS}) are reported by {@link #check()}.
+ */
+public class ValidationErrors implements ValidationEventHandler, ErrorHandler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ValidationErrors.class);
+
+	/** Maximal number of error messages kept, all errors are counted */
+	public static final int MAX_ERRORS = 100;
+
+	private final String source;
+	private final List<String> errors = new ArrayList<>();
+	private int count = 0;
+
+	/**
+	 * @param source - name of validated document for messages
+	 */
+	public ValidationErrors(final String source) {
+		this.source = source;
+	}
+
+	@Override
+	public boolean handleEvent(final ValidationEvent event) {
+		final ValidationEventLocator locator = event.getLocator();
+		if (event.getSeverity() == ValidationEvent.WARNING) {
+			LOGGER.warn("{}: {}", source, message(
+					locator == null ? -1 : locator.getLineNumber(),
+					locator == null ? -1 : locator.getColumnNumber(), event.getMessage()));
+			return true;
+		}
+		add(locator == null ? -1 : locator.getLineNumber(),
+				locator == null ? -1 : locator.getColumnNumber(),
+				event.getMessage());
+		return event.getSeverity() != ValidationEvent.FATAL_ERROR;
+	}
+
+	@Override
+	public void warning(final SAXParseException exception) {
+		LOGGER.warn("{}: {}", source,
+				message(exception.getLineNumber(), exception.getColumnNumber(), exception.getMessage()));
+	}
+
+	@Override
+	public void error(final SAXParseException exception) {
+		add(exception.getLineNumber(), exception.getColumnNumber(), exception.getMessage());
+	}
+
+	@Override
+	public void fatalError(final SAXParseException exception) throws SAXParseException {
+		add(exception.getLineNumber(), exception.getColumnNumber(), exception.getMessage());
+		throw exception;
+	}
+
+	/**
+	 * Adds error found by converter, for example invalid IBAN, message has no position
+	 */
+	public void error(final String message) {
+		add(-1, -1, message);
+	}
+
+	private void add(final int line, final int column, final String message) {
+		count++;
+		if (errors.size() < MAX_ERRORS) {
+			errors.add(message(line, column, message));
+		}
+	}
+
+	/**
+	 * Marshaller reports objects instead of positions, line is unknown for output
+	 */
+	private static String message(final int line, final int column, final String message) {
+		if (line < 1) {
+			return message;
+		} else if (column < 1) {
+			return "line " + line + ": " + message;
+		} else {
+			return "line " + line + ", column " + column + ": " + message;
+		}
+	}
+
+	public boolean hasErrors() {
+		return count > 0;
+	}
+
+	/**
+	 * @return number of errors
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * @return first {@link #MAX_ERRORS} error messages with line and column
+	 */
+	public List<String> errors() {
+		return Collections.unmodifiableList(errors);
+	}
+
+	/**
+	 * @throws ValidationException with all collected messages when document is not valid
+	 */
+	public void check() throws ValidationException {
+		if (count > 0) {
+			final StringBuilder sb = new StringBuilder(256);
+			sb.append(source)
+				.append(" is not valid, ")
+				.append(count)
+				.append(" error(s):");
+			for (String error : errors) {
+				sb.append("\n\t").append(error);
+			}
+			if (count > errors.size()) {
+				sb.append("\n\t...");
+			}
+			throw new ValidationException(sb.toString());
+		}
+	}
+
+}
@@ -0,0 +1,396 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.xml.bind.JAXBException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.PropertyConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long-running conversion of Revolut statements (.csv, .csv.gz, .zip) and pain.001.001.03
+ * files (.xml) dropped into watched directory. File is converted when it was not modified
+ * during settle period, conversions run on bounded worker pool and result is committed to
+ * output directory with atomic rename of temporary file. Converted source is moved to
+ * {@value #DONE} subdirectory of watched directory, source which failed to {@value #FAILED},
+ * so files are not converted again after restart.
+ */
+public class WatchFolderDaemon {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WatchFolderDaemon.class);
+
+	private static final long POLL_MILLIS = 250;
+	private static final long DEFAULT_SETTLE_MILLIS = 1_000;
+	private static final long STATUS_INTERVAL_MILLIS = 60_000;
+	static final String DONE = "done";
+	static final String FAILED = "failed";
+
+	private final FileConverter converter;
+	private final Path directory;
+	private final Path outputDirectory;
+	private final long settleMillis;
+	private final ExecutorService executor;
+	/** Files waiting for settle period, value is time of last event in ms */
+	private final Map<Path, Long> pending;
+	/** Files submitted to workers and not yet moved from watched directory */
+	private final Set<Path> converting;
+	private final AtomicInteger queueDepth;
+	private final AtomicLong filesConverted;
+	private final AtomicLong filesFailed;
+	private final AtomicLong totalLatencyMillis;
+	private volatile boolean running;
+
+	public WatchFolderDaemon(
+			final FileConverter converter,
+			final Path directory,
+			final Path outputDirectory,
+			final long settleMillis,
+			final int workers) {
+		this.converter = converter;
+		this.directory = directory;
+		this.outputDirectory = outputDirectory;
+		this.settleMillis = settleMillis;
+		executor = Executors.newFixedThreadPool(workers);
+		pending = new ConcurrentHashMap<>();
+		converting = ConcurrentHashMap.newKeySet();
+		queueDepth = new AtomicInteger(0);
+		filesConverted = new AtomicLong(0);
+		filesFailed = new AtomicLong(0);
+		totalLatencyMillis = new AtomicLong(0);
+	}
+
+	public int queueDepth() {
+		return queueDepth.get();
+	}
+
+	public void stop() {
+		running = false;
+	}
+
+	/**
+	 * Watches directory until {@link #stop()} is called or thread is interrupted
+	 *
+	 * @throws IOException
+	 */
+	public void run() throws IOException {
+		running = true;
+		// Build JAXB contexts before first file arrives
+		try {
+			JaxbContexts.camt053().context();
+			JaxbContexts.pain001().context();
+		} catch (JAXBException e) {
+			LOGGER.error("Unable to create JAXBContext: {}", e.getMessage());
+		}
+		try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+			directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+			// Files dropped while daemon was not running
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+				for (Path file : stream) {
+					schedule(file);
+				}
+			}
+			LOGGER.info("Watching {}, converted files are written to {}.", directory, outputDirectory);
+			long lastStatus = System.currentTimeMillis();
+			while (running) {
+				final WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == OVERFLOW) {
+							LOGGER.warn("Watch events lost, rescanning {}.", directory);
+							try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+								for (Path file : stream) {
+									schedule(file);
+								}
+							}
+						} else {
+							schedule(directory.resolve((Path) event.context()));
+						}
+					}
+					if (!key.reset()) {
+						LOGGER.error("Directory {} is no longer accessible.", directory);
+						running = false;
+					}
+				}
+				dispatchSettled();
+				final long now = System.currentTimeMillis();
+				if (now - lastStatus >= STATUS_INTERVAL_MILLIS) {
+					lastStatus = now;
+					logStatus();
+				}
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException cwse) {
+			LOGGER.warn("Watch service for {} closed.", directory);
+		} finally {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			logStatus();
+		}
+	}
+
+	private void schedule(final Path file) {
+		final String name = file.getFileName().toString();
+		if (!name.startsWith(".") &&
+				(FileConverter.isStatement(file) || FileConverter.isPaymentBatch(file))) {
+			pending.put(file, System.currentTimeMillis());
+		}
+	}
+
+	private void dispatchSettled() {
+		final long now = System.currentTimeMillis();
+		final Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+		while (iterator.hasNext()) {
+			final Map.Entry<Path, Long> entry = iterator.next();
+			if (now - entry.getValue() >= settleMillis) {
+				iterator.remove();
+				final Path source = entry.getKey();
+				if (!Files.isRegularFile(source) || !converting.add(source)) {
+					continue;
+				}
+				final long detected = entry.getValue();
+				queueDepth.incrementAndGet();
+				executor.execute(() -> convert(source, detected));
+			}
+		}
+	}
+
+	private void convert(final Path source, final long detected) {
+		final long started = System.currentTimeMillis();
+		final Path output = FileConverter.outputPath(source, outputDirectory);
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(outputDirectory, "." + output.getFileName(), ".tmp");
+			converter.convert(source, temp);
+			OutputSink.commit(temp, output);
+			final long finished = System.currentTimeMillis();
+			filesConverted.incrementAndGet();
+			totalLatencyMillis.addAndGet(finished - detected);
+			LOGGER.info("{} converted to {}, conversion {} ms, latency {} ms, queue depth {}.",
+					source, output, finished - started, finished - detected, queueDepth.get() - 1);
+			moveSource(source, DONE);
+		} catch (IOException | JAXBException | RuntimeException e) {
+			filesFailed.incrementAndGet();
+			LOGGER.error("Unable to convert {}: {}", source, e.getMessage());
+			final StringWriter sw = new StringWriter();
+			final PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			LOGGER.error(sw.toString());
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException ioe) {
+					LOGGER.warn("Unable to delete {}: {}", temp, ioe.getMessage());
+				}
+			}
+			moveSource(source, FAILED);
+		} finally {
+			converting.remove(source);
+			queueDepth.decrementAndGet();
+		}
+	}
+
+	private void moveSource(final Path source, final String subdirectory) {
+		final Path target = directory.resolve(subdirectory).resolve(source.getFileName());
+		try {
+			Files.createDirectories(target.getParent());
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException ioe) {
+			LOGGER.error("Unable to move {} to {}: {}", source, target, ioe.getMessage());
+		}
+	}
+
+	private void logStatus() {
+		final long count = filesConverted.get();
+		LOGGER.info("Converted {} file(s), failed {}, queue depth {}, waiting to settle {}, average latency {} ms.",
+				count, filesFailed.get(), queueDepth.get(), pending.size(),
+				count == 0 ? 0 : totalLatencyMillis.get() / count);
+	}
+
+	public static void main(String[] argv) {
+		// Check for valid log4j configuration
+		final String log4jConfig = System.getProperty("a2.log4j.configuration");
+		if (log4jConfig == null || "".equals(log4jConfig)) {
+			BasicConfigurator.configure();
+			LOGGER.warn("JVM argument -Da2.log4j.configuration not set!");
+		} else {
+			// Check that log4j configuration file exist
+			Path path = Paths.get(log4jConfig);
+			if (!Files.exists(path) || Files.isDirectory(path)) {
+				BasicConfigurator.configure();
+				LOGGER.error("JVM argument -Da2.log4j.configuration points to unknown file {}.", log4jConfig);
+			} else {
+				// Initialize log4j
+				PropertyConfigurator.configure(log4jConfig);
+			}
+		}
+
+		final Options options = new Options();
+
+		final Option optionDirectory = new Option("d", "directory", true,
+				"Directory to watch for Revolut statements (.csv, .csv.gz, .zip) and pain.001.001.03 files (.xml), processed files are moved to its "
+						+ DONE + " and " + FAILED + " subdirectories.");
+		optionDirectory.setRequired(true);
+		options.addOption(optionDirectory);
+
+		final Option optionOutput = new Option("o", "output-directory", true,
+				"Directory for converted files, must differ from watched directory.");
+		optionOutput.setRequired(true);
+		options.addOption(optionOutput);
+
+		final Option optionPartyAddress = new Option("a", "party-address", true,
+				"Party address, when not set value from Setup is used.");
+		optionPartyAddress.setRequired(false);
+		options.addOption(optionPartyAddress);
+
+		final Option optionPartyName = new Option("n", "party-name", true,
+				"Party name, when not set value from Setup is used.");
+		optionPartyName.setRequired(false);
+		options.addOption(optionPartyName);
+
+		final Option optionIban = new Option("i", "iban", true,
+				"Statement IBAN, when not set value from Setup is used.");
+		optionIban.setRequired(false);
+		options.addOption(optionIban);
+
+		final Option optionPersonalIbans = new Option("p", "personal-ibans", true,
+				"Comma separated list of personal IBAN's, when not set value from Setup is used.");
+		optionPersonalIbans.setRequired(false);
+		options.addOption(optionPersonalIbans);
+
+		final Option optionPersonalIbansFile = new Option("f", "personal-ibans-file", true,
+				"File with personal IBAN's, reloaded when changed. Used when personal IBAN's are not set.");
+		optionPersonalIbansFile.setRequired(false);
+		options.addOption(optionPersonalIbansFile);
+
+		final Option optionSettle = new Option("t", "settle-millis", true,
+				"File is converted when it was not modified for this number of milliseconds, default - "
+						+ DEFAULT_SETTLE_MILLIS + ".");
+		optionSettle.setRequired(false);
+		options.addOption(optionSettle);
+
+		final Option optionWorkers = new Option("w", "workers", true,
+				"Number of parallel conversions, default - number of available processors.");
+		optionWorkers.setRequired(false);
+		options.addOption(optionWorkers);
+
+		final Option optionStreaming = new Option("x", "streaming", false,
+				"Convert files without building whole document in memory.");
+		optionStreaming.setRequired(false);
+		options.addOption(optionStreaming);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cmd = null;
+		long settleMillis = DEFAULT_SETTLE_MILLIS;
+		int workers = Runtime.getRuntime().availableProcessors();
+		Path directory = null;
+		Path outputDirectory = null;
+		try {
+			cmd = parser.parse(options, argv);
+			if (cmd.hasOption("t")) {
+				settleMillis = Long.parseLong(cmd.getOptionValue("t"));
+			}
+			if (cmd.hasOption("w")) {
+				workers = Integer.parseInt(cmd.getOptionValue("w"));
+				if (workers < 1) {
+					throw new org.apache.commons.cli.ParseException("Number of workers must be positive!");
+				}
+			}
+			directory = Paths.get(cmd.getOptionValue("d")).toAbsolutePath().normalize();
+			outputDirectory = Paths.get(cmd.getOptionValue("o")).toAbsolutePath().normalize();
+			if (directory.equals(outputDirectory)) {
+				throw new org.apache.commons.cli.ParseException("Output directory must differ from watched directory!");
+			}
+		} catch (org.apache.commons.cli.ParseException | NumberFormatException pe) {
+			LOGGER.error(pe.getMessage());
+			formatter.printHelp(WatchFolderDaemon.class.getCanonicalName(), options);
+			System.exit(1);
+		}
+
+		final PropertiesManager pm = new PropertiesManager();
+		if (cmd.hasOption("f")) {
+			pm.personalIbansFile(cmd.getOptionValue("f"));
+		}
+		final FileConverter converter = new FileConverter(
+				pm,
+				cmd.getOptionValue("n"),
+				cmd.getOptionValue("i"),
+				cmd.getOptionValue("a"),
+				cmd.getOptionValue("p"),
+				cmd.hasOption("x"));
+
+		try {
+			Files.createDirectories(outputDirectory);
+			final WatchFolderDaemon daemon = new WatchFolderDaemon(
+					converter, directory, outputDirectory, settleMillis, workers);
+			final Thread main = Thread.currentThread();
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				daemon.stop();
+				try {
+					main.join(TimeUnit.MINUTES.toMillis(1));
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			daemon.run();
+		} catch (IOException e) {
+			LOGGER.error(e.getMessage());
+			final StringWriter sw = new StringWriter();
+			final PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			LOGGER.error(sw.toString());
+			System.exit(1);
+		}
+	}
+
+}
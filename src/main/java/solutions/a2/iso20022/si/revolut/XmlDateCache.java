@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.GregorianCalendar;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+/**
+ * Conversion of dates to XMLGregorianCalendar with single shared DatatypeFactory.
+ * Calendars for dates are cached by epoch day for every time zone, returned instances
+ * are shared between statement entries and must not be modified.
+ */
+public class XmlDateCache {
+
+	private static final ConcurrentMap<ZoneId, XmlDateCache> CACHES = new ConcurrentHashMap<>();
+	private static volatile DatatypeFactory datatypeFactory;
+
+	private final ZoneId zoneId;
+	private final ConcurrentMap<Long, XMLGregorianCalendar> dates;
+
+	private XmlDateCache(final ZoneId zoneId) {
+		this.zoneId = zoneId;
+		dates = new ConcurrentHashMap<>();
+	}
+
+	public static XmlDateCache forZone(final ZoneId zoneId) {
+		return CACHES.computeIfAbsent(zoneId, XmlDateCache::new);
+	}
+
+	public static DatatypeFactory datatypeFactory() throws DatatypeConfigurationException {
+		DatatypeFactory result = datatypeFactory;
+		if (result == null) {
+			synchronized (XmlDateCache.class) {
+				result = datatypeFactory;
+				if (result == null) {
+					result = DatatypeFactory.newInstance();
+					datatypeFactory = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param calendar - date and time
+	 * @return new, not cached, XMLGregorianCalendar
+	 * @throws DatatypeConfigurationException
+	 */
+	public static XMLGregorianCalendar dateTime(final GregorianCalendar calendar) throws DatatypeConfigurationException {
+		return datatypeFactory().newXMLGregorianCalendar(calendar);
+	}
+
+	/**
+	 *
+	 * @param epochDay - day as returned by LocalDate.toEpochDay()
+	 * @return shared XMLGregorianCalendar for start of the day in this time zone
+	 * @throws DatatypeConfigurationException
+	 */
+	public XMLGregorianCalendar date(final long epochDay) throws DatatypeConfigurationException {
+		final Long key = epochDay;
+		XMLGregorianCalendar result = dates.get(key);
+		if (result == null) {
+			result = datatypeFactory().newXMLGregorianCalendar(
+					GregorianCalendar.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(zoneId)));
+			final XMLGregorianCalendar existing = dates.putIfAbsent(key, result);
+			if (existing != null) {
+				result = existing;
+			}
+		}
+		return result;
+	}
+
+	public XMLGregorianCalendar date(final LocalDate date) throws DatatypeConfigurationException {
+		return date(date.toEpochDay());
+	}
+
+	public int size() {
+		return dates.size();
+	}
+
+}
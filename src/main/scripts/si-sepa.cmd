@@ -0,0 +1,71 @@
+@echo off
+rem
+rem Copyright (c) 2018-present, A2 Resitve d.o.o.
+rem
+rem Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+rem compliance with the License. You may obtain a copy of the License at
+rem
+rem http://www.apache.org/licenses/LICENSE-2.0
+rem
+rem Unless required by applicable law or agreed to in writing, software distributed under the License is
+rem distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+rem the License for the specific language governing permissions and limitations under the License.
+rem
+rem Launcher with Class Data Sharing archive and JAXB warm-up, see si-sepa.sh
+rem
+
+setlocal
+set "BASEDIR=%~dp0"
+set "JAR=%BASEDIR%@project.build.finalName@-standalone.jar"
+set "JSA=%BASEDIR%@cds.archive@"
+if defined JAVA_HOME (
+	set "JAVA=%JAVA_HOME%\bin\java"
+) else (
+	set "JAVA=java"
+)
+
+set "MAIN=SepaUtils"
+if not "%~1"=="" (
+	set "MAIN=%~1"
+	shift
+)
+rem Single file conversions run with C1 compiler only, set SI_SEPA_JIT_OPTS for multi-GB files
+set "JIT_OPTS="
+if /i "%MAIN%"=="SepaUtils" set "JIT_OPTS=-XX:TieredStopAtLevel=1"
+if /i "%MAIN%"=="BankToCustomerStatement" set "JIT_OPTS=-XX:TieredStopAtLevel=1"
+if /i "%MAIN%"=="CreditTransferInitiation" set "JIT_OPTS=-XX:TieredStopAtLevel=1"
+if defined SI_SEPA_JIT_OPTS set "JIT_OPTS=%SI_SEPA_JIT_OPTS%"
+
+rem Archive older than jar or created for other jar location is created again
+if not exist "%JSA%" goto create
+set "NEWEST="
+for /f "delims=" %%f in ('dir /b /o:d "%JAR%" "%JSA%" 2^>nul') do set "NEWEST=%%f"
+for %%j in ("%JAR%") do if /i "%NEWEST%"=="%%~nxj" goto stale
+if not exist "%JSA%.path" goto archived
+set "ARCHIVED="
+set /p ARCHIVED=<"%JSA%.path"
+if /i "%ARCHIVED%"=="%JAR%" goto archived
+:stale
+del /q "%JSA%" "%JSA%.path" > nul 2>&1
+:create
+rem Dynamic archive requires JDK 13+, on older JDK application runs without it
+"%JAVA%" -XX:ArchiveClassesAtExit="%JSA%" -cp "%JAR%" solutions.a2.iso20022.si.revolut.CdsTraining > nul 2>&1
+if errorlevel 1 goto failed
+> "%JSA%.path" echo %JAR%
+goto archived
+:failed
+del /q "%JSA%" > nul 2>&1
+:archived
+set "CDS_OPTS="
+if exist "%JSA%" set "CDS_OPTS=-XX:SharedArchiveFile=%JSA% -Xshare:auto -Xlog:cds=off,cds+dynamic=off"
+
+set ARGS=
+:args
+if "%~1"=="" goto run
+set ARGS=%ARGS% %1
+shift
+goto args
+
+:run
+"%JAVA%" %CDS_OPTS% %JIT_OPTS% -Da2.jaxb.warmup=true %JAVA_OPTS% -cp "%JAR%" solutions.a2.iso20022.si.revolut.%MAIN% %ARGS%
+endlocal
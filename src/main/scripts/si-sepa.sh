@@ -0,0 +1,67 @@
+#!/bin/sh
+#
+# Copyright (c) 2018-present, A2 Rešitve d.o.o.
+#
+# Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+# compliance with the License. You may obtain a copy of the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software distributed under the License is
+# distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+# the License for the specific language governing permissions and limitations under the License.
+#
+# Launcher with Class Data Sharing archive and JAXB warm-up.
+# Without arguments starts interactive utility, otherwise first argument is name of converter
+# class, for example
+#   si-sepa.sh BankToCustomerStatement -s statement.csv
+#   si-sepa.sh CreditTransferInitiation -s payroll.xml -i SI56192001234567892
+# Single file conversions run with C1 compiler only, which halves time to first output, set
+# SI_SEPA_JIT_OPTS= (empty) for multi-GB files. Daemons and batch runs always use C2.
+# Archive is valid only for JDK and jar location it was created with. Launcher creates it again
+# when it is missing, older than jar or was created by launcher for other location, after JDK
+# upgrade just delete @cds.archive@. Unusable archive is ignored.
+#
+
+BASEDIR=$(cd "$(dirname "$0")" && pwd)
+JAR="$BASEDIR/@project.build.finalName@-standalone.jar"
+JSA="$BASEDIR/@cds.archive@"
+if [ -n "$JAVA_HOME" ]; then
+	JAVA="$JAVA_HOME/bin/java"
+else
+	JAVA=java
+fi
+
+MAIN=solutions.a2.iso20022.si.revolut.SepaUtils
+case "$1" in
+	[A-Z]*)
+		MAIN="solutions.a2.iso20022.si.revolut.$1"
+		shift
+		;;
+esac
+case "$MAIN" in
+	*.SepaUtils|*.BankToCustomerStatement|*.CreditTransferInitiation)
+		JIT_OPTS="${SI_SEPA_JIT_OPTS--XX:TieredStopAtLevel=1}"
+		;;
+	*)
+		JIT_OPTS=
+		;;
+esac
+
+if [ ! -f "$JSA" ] || [ "$JAR" -nt "$JSA" ] || \
+		{ [ -f "$JSA.path" ] && [ "$(cat "$JSA.path")" != "$JAR" ]; }; then
+	# Dynamic archive requires JDK 13+, on older JDK application runs without it
+	rm -f "$JSA" "$JSA.path"
+	if "$JAVA" -XX:ArchiveClassesAtExit="$JSA" -cp "$JAR" \
+			solutions.a2.iso20022.si.revolut.CdsTraining > /dev/null 2>&1; then
+		echo "$JAR" > "$JSA.path"
+	else
+		rm -f "$JSA"
+	fi
+fi
+CDS_OPTS=
+if [ -f "$JSA" ]; then
+	CDS_OPTS="-XX:SharedArchiveFile=$JSA -Xshare:auto -Xlog:cds=off,cds+dynamic=off"
+fi
+
+exec "$JAVA" $CDS_OPTS $JIT_OPTS -Da2.jaxb.warmup=true $JAVA_OPTS -cp "$JAR" "$MAIN" "$@"
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import solutions.a2.iso20022.si.revolut.AccountValidator.Result;
+
+public class AccountValidatorTest {
+
+	private static final String SI_IBAN = "SI56191000000123438";
+
+	@Test
+	public void validIbans() {
+		assertEquals(Result.VALID, AccountValidator.iban(SI_IBAN));
+		assertEquals(Result.VALID, AccountValidator.iban("LT601010012345678901"));
+		assertEquals(Result.VALID, AccountValidator.iban("DE89370400440532013000"));
+		assertEquals(Result.VALID, AccountValidator.iban("GB82WEST12345698765432"));
+		// Longest IBAN, remainder is reduced while it is calculated
+		assertEquals(Result.VALID, AccountValidator.iban("LC55HEMM000100010012001200023015"));
+		assertTrue(AccountValidator.validIban(new StringBuilder(SI_IBAN)));
+	}
+
+	@Test
+	public void wrongCheckDigits() {
+		assertEquals(Result.CHECK_DIGITS, AccountValidator.iban("SI57191000000123438"));
+		// Single digit of BBAN changed
+		assertEquals(Result.CHECK_DIGITS, AccountValidator.iban("SI56191000000123439"));
+		assertEquals(Result.CHECK_DIGITS, AccountValidator.iban("SI56000000000000000"));
+		assertFalse(AccountValidator.validIban("SI57191000000123438"));
+	}
+
+	@Test
+	public void wrongLengthForCountry() {
+		assertEquals(Result.LENGTH, AccountValidator.iban("SI5619100000012343"));
+		assertEquals(Result.LENGTH, AccountValidator.iban("SI561910000001234380"));
+		// LT IBAN has 20 characters, SI IBAN 19
+		assertEquals(Result.LENGTH, AccountValidator.iban("LT56191000000123438"));
+		assertEquals(Result.LENGTH, AccountValidator.iban("SI5"));
+		assertEquals(Result.LENGTH, AccountValidator.iban("SI5619100000012343800000000000000000"));
+	}
+
+	@Test
+	public void unknownCountry() {
+		assertEquals(Result.COUNTRY, AccountValidator.iban("US56191000000123438"));
+		assertEquals(Result.COUNTRY, AccountValidator.iban("1256191000000123438"));
+	}
+
+	@Test
+	public void lowercaseOrSpacedInput() {
+		// Electronic format only, country code must be upper case
+		assertEquals(Result.COUNTRY, AccountValidator.iban("si56191000000123438"));
+		assertEquals(Result.LENGTH, AccountValidator.iban("SI56 1910 0000 0123 438"));
+		assertEquals(Result.CHARACTER, AccountValidator.iban("SI56 91000000123438"));
+		assertEquals(Result.CHARACTER, AccountValidator.iban("SIX6191000000123438"));
+		// Letters of BBAN are checked case-insensitive
+		assertEquals(Result.VALID, AccountValidator.iban("GB82west12345698765432"));
+	}
+
+	@Test
+	public void nullOrBlankIban() {
+		assertEquals(Result.BLANK, AccountValidator.iban(null));
+		assertEquals(Result.BLANK, AccountValidator.iban(""));
+		assertEquals(Result.LENGTH, AccountValidator.iban("   "));
+		assertFalse(AccountValidator.validIban(null));
+	}
+
+	@Test
+	public void checkDigits() {
+		assertEquals(56, AccountValidator.checkDigits("SI", "191000000123438"));
+		assertEquals(89, AccountValidator.checkDigits("DE", "370400440532013000"));
+		assertEquals(82, AccountValidator.checkDigits("GB", "WEST12345698765432"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void checkDigitsOfInvalidBban() {
+		AccountValidator.checkDigits("SI", "1910-00000123438");
+	}
+
+	@Test
+	public void batchMatchesSingleIban() {
+		final String[] ibans = {
+				SI_IBAN,
+				"SI57191000000123438",
+				null,
+				"",
+				"si56191000000123438",
+				"SI56 1910 0000 0123 438",
+				"US56191000000123438",
+				"DE89370400440532013000",
+				"LT601010012345678901"
+		};
+		final Result[] results = new Result[ibans.length];
+		final int invalid = AccountValidator.ibans(ibans, 0, ibans.length, results);
+		int expectedInvalid = 0;
+		for (int i = 0; i < ibans.length; i++) {
+			assertEquals(ibans[i], AccountValidator.iban(ibans[i]), results[i]);
+			if (!results[i].valid()) {
+				expectedInvalid++;
+			}
+		}
+		assertEquals(expectedInvalid, invalid);
+		assertEquals(6, invalid);
+	}
+
+	@Test
+	public void batchRange() {
+		final String[] ibans = {"SI57191000000123438", SI_IBAN, "SI57191000000123438", SI_IBAN};
+		final Result[] results = new Result[ibans.length];
+		assertEquals(1, AccountValidator.ibans(ibans, 1, 3, results));
+		assertNull(results[0]);
+		assertEquals(Result.VALID, results[1]);
+		assertEquals(Result.CHECK_DIGITS, results[2]);
+		assertNull(results[3]);
+	}
+
+	@Test
+	public void validBics() {
+		assertEquals(Result.VALID, AccountValidator.bic("LJBASI2X"));
+		assertEquals(Result.VALID, AccountValidator.bic("LJBASI2XXXX"));
+		assertEquals(Result.VALID, AccountValidator.bic("REVOLT21"));
+		assertEquals(Result.VALID, AccountValidator.bic("DEUTDEFF500"));
+		assertTrue(AccountValidator.validBic("BSLJSI2X"));
+	}
+
+	@Test
+	public void bicLocationCode() {
+		// Second character 0 is test BIC
+		assertEquals(Result.VALID, AccountValidator.bic("LJBASI20"));
+		assertEquals(Result.VALID, AccountValidator.bic("LJBASI99"));
+		assertEquals(Result.VALID, AccountValidator.bic("LJBASIAZ"));
+		// Letter O is not used as second character
+		assertEquals(Result.FORMAT, AccountValidator.bic("LJBASI2O"));
+		// First character is not 0 or 1
+		assertEquals(Result.FORMAT, AccountValidator.bic("LJBASI0X"));
+		assertEquals(Result.FORMAT, AccountValidator.bic("LJBASI1X"));
+		assertEquals(Result.FORMAT, AccountValidator.bic("LJBASI2x"));
+		assertEquals(Result.FORMAT, AccountValidator.bic("LJBASI-X"));
+	}
+
+	@Test
+	public void wrongBics() {
+		assertEquals(Result.BLANK, AccountValidator.bic(null));
+		assertEquals(Result.BLANK, AccountValidator.bic(""));
+		assertEquals(Result.LENGTH, AccountValidator.bic("LJBASI2"));
+		assertEquals(Result.LENGTH, AccountValidator.bic("LJBASI2XX"));
+		assertEquals(Result.LENGTH, AccountValidator.bic("LJBASI2XXXXX"));
+		assertEquals(Result.FORMAT, AccountValidator.bic("ljbasi2x"));
+		assertEquals(Result.FORMAT, AccountValidator.bic("LJB4SI2X"));
+		// Branch code is upper case letters and digits
+		assertEquals(Result.FORMAT, AccountValidator.bic("LJBASI2Xxxx"));
+		assertEquals(Result.FORMAT, AccountValidator.bic("LJBASI2X-01"));
+		assertFalse(AccountValidator.validBic("LJBASI 2X"));
+	}
+
+}
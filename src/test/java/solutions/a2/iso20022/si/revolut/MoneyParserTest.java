@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+
+import org.junit.Test;
+
+public class MoneyParserTest {
+
+	@Test
+	public void amounts() throws ParseException {
+		assertEquals(123456, MoneyParser.parse("1,234.56"));
+		assertEquals(-10, MoneyParser.parse("-0.10"));
+		assertEquals(150, MoneyParser.parse("1.5"));
+		assertEquals(100, MoneyParser.parse("1"));
+		assertEquals(0, MoneyParser.parse("0.00"));
+		assertEquals(5, MoneyParser.parse(".05"));
+		assertEquals(-123456789, MoneyParser.parse("-1,234,567.89"));
+		assertEquals(123456, MoneyParser.parse(new StringBuilder(" 1234.56\t")));
+	}
+
+	@Test
+	public void trailingZeroFractionDigits() throws ParseException {
+		assertEquals(100, MoneyParser.parse("1.000"));
+		assertEquals(150, MoneyParser.parse("1.50000"));
+	}
+
+	@Test
+	public void moreThanTwoDecimalPlaces() {
+		rejected("1.005");
+		rejected("0.001");
+		rejected("-12.3401");
+	}
+
+	@Test
+	public void leadingPlus() throws ParseException {
+		assertEquals(1230, MoneyParser.parse("+12.30"));
+		assertEquals(1234567, MoneyParser.parse("+12,345.67"));
+	}
+
+	@Test
+	public void blankInput() {
+		rejected(null);
+		rejected("");
+		rejected("   ");
+		rejected("-");
+		rejected("+");
+		rejected(".");
+	}
+
+	@Test
+	public void wrongCharacters() {
+		rejected("1.2.3");
+		rejected("12a.00");
+		rejected("1.23,4");
+		rejected(",123");
+		rejected("--1");
+		rejected("1 000.00");
+		rejected("€10.00");
+	}
+
+	@Test
+	public void longOverflow() throws ParseException {
+		assertEquals(Long.MAX_VALUE, MoneyParser.parse("92233720368547758.07"));
+		assertEquals(-Long.MAX_VALUE, MoneyParser.parse("-92,233,720,368,547,758.07"));
+		rejected("92233720368547758.08");
+		rejected("92233720368547759");
+		rejected("100000000000000000000");
+		rejected("-92233720368547758.08");
+	}
+
+	@Test
+	public void toBigDecimalHasTwoDecimals() {
+		assertEquals("100.00", MoneyParser.toBigDecimal(10000).toPlainString());
+		assertEquals("-0.10", MoneyParser.toBigDecimal(-10).toPlainString());
+		assertEquals("0.00", MoneyParser.toBigDecimal(0).toPlainString());
+		assertEquals(MoneyParser.SCALE, MoneyParser.toBigDecimal(123456).scale());
+	}
+
+	@Test
+	public void parsedAmountRoundTrip() throws ParseException {
+		for (String value : new String[] {"1,234.56", "-0.10", "1.5", "1.000", "+7"}) {
+			assertEquals(value,
+					new BigDecimal(value.replace(",", "")).setScale(MoneyParser.SCALE),
+					MoneyParser.toBigDecimal(MoneyParser.parse(value)));
+		}
+	}
+
+	private static void rejected(final String value) {
+		try {
+			MoneyParser.parse(value);
+			fail("Amount '" + value + "' must be rejected");
+		} catch (ParseException pe) {
+			// Expected
+		}
+	}
+
+}
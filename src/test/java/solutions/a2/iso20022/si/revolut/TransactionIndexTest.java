@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2018-present, A2 Rešitve d.o.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+
+package solutions.a2.iso20022.si.revolut;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TransactionIndexTest {
+
+	private static final String IBAN = "LT60 1010 0123 4567 8901";
+	private static final String UUID_ID = "a11d459a-2f97-8d87-1999-9e3fa46d6753";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+
+	@Before
+	public void setUp() {
+		directory = folder.getRoot().toPath();
+	}
+
+	@Test
+	public void containsAfterCommit() throws IOException {
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			assertFalse(index.contains(UUID_ID));
+			try (TransactionIndex.Batch batch = index.batch()) {
+				batch.add(UUID_ID);
+				// IDs are added only when batch is committed
+				assertFalse(index.contains(UUID_ID));
+				batch.commit();
+			}
+			assertTrue(index.contains(UUID_ID));
+			assertEquals(1, index.size());
+		}
+		assertTrue(Files.exists(directory.resolve("LT601010012345678901" + TransactionIndex.SUFFIX)));
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			assertTrue(index.contains(UUID_ID));
+			assertEquals(1, index.size());
+		}
+	}
+
+	@Test
+	public void batchNotCommitted() throws IOException {
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			try (TransactionIndex.Batch batch = index.batch()) {
+				batch.add(UUID_ID);
+			}
+			assertFalse(index.contains(UUID_ID));
+			assertEquals(0, index.size());
+		}
+		assertEquals(0, count(directory, "*.tmp"));
+	}
+
+	@Test
+	public void journalReplayedOnOpen() throws IOException {
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			try (TransactionIndex.Batch batch = index.batch()) {
+				batch.add(UUID_ID);
+				batch.commit();
+			}
+		}
+		// Journal committed by run interrupted before it was applied, with ID already in index
+		final Path journal = directory.resolve("LT601010012345678901" + TransactionIndex.SUFFIX + ".journal");
+		final String other = "TX-0001";
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(journal))) {
+			for (String id : new String[] {UUID_ID, other}) {
+				out.writeLong(TransactionIndex.key(id, true));
+				out.writeLong(TransactionIndex.key(id, false));
+			}
+		}
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			assertFalse(Files.exists(journal));
+			assertTrue(index.contains(UUID_ID));
+			assertTrue(index.contains(other));
+			assertEquals(2, index.size());
+		}
+	}
+
+	@Test
+	public void growKeepsAllKeys() throws IOException {
+		final int count = TransactionIndex.INITIAL_CAPACITY * TransactionIndex.MAX_LOAD_PERCENT / 100 + 1000;
+		final List<String> ids = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(UUID.randomUUID().toString());
+		}
+		final Path file = directory.resolve("LT601010012345678901" + TransactionIndex.SUFFIX);
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			final long initialLength = Files.size(file);
+			try (TransactionIndex.Batch batch = index.batch()) {
+				for (String id : ids) {
+					batch.add(id);
+				}
+				batch.commit();
+			}
+			assertEquals(count, index.size());
+			assertEquals(2 * (initialLength - 32) + 32, Files.size(file));
+			for (String id : ids) {
+				assertTrue(id, index.contains(id));
+			}
+			assertFalse(index.contains(UUID.randomUUID().toString()));
+		}
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			assertEquals(count, index.size());
+			for (String id : ids) {
+				assertTrue(id, index.contains(id));
+			}
+		}
+	}
+
+	@Test
+	public void nonUuidIds() throws IOException {
+		final String[] ids = {
+				"TX-0001",
+				"",
+				"0",
+				// 33 hex digits is not UUID
+				"a11d459a2f978d8719999e3fa46d67530",
+				// UUID with non hex character
+				"a11d459a-2f97-8d87-1999-9e3fa46d675g",
+				"Plačilo Čžš"
+		};
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			try (TransactionIndex.Batch batch = index.batch()) {
+				for (String id : ids) {
+					batch.add(id);
+				}
+				batch.commit();
+			}
+			assertEquals(ids.length, index.size());
+			for (String id : ids) {
+				assertTrue(id, index.contains(id));
+			}
+			assertFalse(index.contains("TX-0002"));
+			assertFalse(index.contains(UUID_ID));
+			// Dashes and case of UUID do not change key
+			assertFalse(index.contains("A11D459A2F978D8719999E3FA46D6753"));
+		}
+	}
+
+	@Test
+	public void keyOfUuid() {
+		assertEquals(0xa11d459a2f978d87L, TransactionIndex.key(UUID_ID, true));
+		assertEquals(0x19999e3fa46d6753L, TransactionIndex.key(UUID_ID, false));
+		assertEquals(TransactionIndex.key(UUID_ID, true),
+				TransactionIndex.key("A11D459A2F978D8719999E3FA46D6753", true));
+		assertEquals(TransactionIndex.key(UUID_ID, false),
+				TransactionIndex.key("A11D459A2F978D8719999E3FA46D6753", false));
+		assertNotEquals(TransactionIndex.key("TX-0001", true), TransactionIndex.key("TX-0001", false));
+	}
+
+	@Test
+	public void secondOpenWhileLocked() throws IOException {
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			try {
+				TransactionIndex.open(directory, IBAN).close();
+				fail("Index is locked");
+			} catch (IOException ioe) {
+				assertTrue(ioe.getMessage(), ioe.getMessage().contains("used by other conversion"));
+			}
+			// First instance is still usable
+			try (TransactionIndex.Batch batch = index.batch()) {
+				batch.add(UUID_ID);
+				batch.commit();
+			}
+			assertTrue(index.contains(UUID_ID));
+		}
+		// Lock is released on close
+		try (TransactionIndex index = TransactionIndex.open(directory, IBAN)) {
+			assertTrue(index.contains(UUID_ID));
+		}
+	}
+
+	private static int count(final Path directory, final String glob) throws IOException {
+		int files = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+			for (Iterator<Path> iterator = stream.iterator(); iterator.hasNext(); iterator.next()) {
+				files++;
+			}
+		}
+		return files;
+	}
+
+}